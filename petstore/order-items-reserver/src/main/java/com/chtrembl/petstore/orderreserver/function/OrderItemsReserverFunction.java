@@ -1,11 +1,9 @@
 package com.chtrembl.petstore.orderreserver.function;
 
-import com.azure.core.util.BinaryData;
-import com.azure.storage.blob.BlobClient;
-import com.azure.storage.blob.BlobContainerClient;
-import com.azure.storage.blob.BlobServiceClient;
-import com.azure.storage.blob.BlobServiceClientBuilder;
 import com.chtrembl.petstore.orderreserver.model.OrderRequest;
+import com.chtrembl.petstore.orderreserver.model.ReservationStatus;
+import com.chtrembl.petstore.orderreserver.sink.ReservationSink;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -13,25 +11,45 @@ import com.microsoft.azure.functions.*;
 import com.microsoft.azure.functions.annotation.AuthorizationLevel;
 import com.microsoft.azure.functions.annotation.FunctionName;
 import com.microsoft.azure.functions.annotation.HttpTrigger;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class OrderItemsReserverFunction {
 
-    private static final String STORAGE_CONN_ENV = "BLOB_CONNECTION_STRING";
-    private static final String CONTAINER_NAME_ENV = "BLOB_CONTAINER_NAME";
+    private static final String BULK_PARALLELISM_ENV = "BULK_UPLOAD_PARALLELISM";
+    private static final int DEFAULT_BULK_PARALLELISM = 8;
 
     private final ObjectMapper mapper = new ObjectMapper()
             .registerModule(new JavaTimeModule())
             .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
+    private final ReservationSink reservationSink;
+
+    private final int bulkParallelism = bulkParallelism();
+    private final ExecutorService uploadExecutor = Executors.newFixedThreadPool(bulkParallelism, runnable -> {
+        Thread thread = new Thread(runnable, "reservation-upload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     @FunctionName("reserveOrder")
     public HttpResponseMessage reserveOrder(
             @HttpTrigger(name = "req", methods = {HttpMethod.POST}, authLevel = AuthorizationLevel.FUNCTION)
@@ -58,42 +76,142 @@ public class OrderItemsReserverFunction {
                         .body("sessionId required (header x-session-id or body.sessionId)").build();
             }
 
-            if (order.orderId == null || order.orderId.isEmpty()) {
-                order.orderId = UUID.randomUUID().toString();
-            }
-            if (order.timestamp == null) {
-                order.timestamp = OffsetDateTime.now();
-            }
-            // serialize to json
-            byte[] bytes = mapper.writeValueAsBytes(order);
-            String conn = System.getenv(STORAGE_CONN_ENV);
-            String containerName = System.getenv(CONTAINER_NAME_ENV);
-            log.info("Container name: {}, Connection string: {}", containerName, conn);
-            if (conn == null || containerName == null) {
-                log.warn("Missing BLOB_CONNECTION_STRING or BLOB_CONTAINER_NAME env vars");
-                return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body("Storage configuration missing").build();
+            String location = reserve(sessionId, order);
+            return request.createResponseBuilder(HttpStatus.OK)
+                    .body(String.format("Order reserved and written to %s", location))
+                    .build();
+        } catch (Exception ex) {
+            log.error("Failed to reserve order: ", ex);
+            return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error: " + ex.getMessage()).build();
+        }
+    }
+
+    /**
+     * Reserves many orders in one call. The body is either a JSON array or newline-delimited
+     * JSON of orders, each carrying its own {@code sessionId}. Orders are read one at a time
+     * and written with bounded parallelism; the response lists the outcome of every order in
+     * request order. Orders of the same session share one blob, so they are written one after
+     * the other in request order and the last of them is the one that remains.
+     */
+    @FunctionName("reserveOrders")
+    public HttpResponseMessage reserveOrders(
+            @HttpTrigger(name = "req", methods = {HttpMethod.POST}, authLevel = AuthorizationLevel.FUNCTION)
+            HttpRequestMessage<String> request,
+            final ExecutionContext context) {
+        log.info("Executing function reserveOrders");
+
+        String body = request.getBody();
+        if (body == null || body.isBlank()) {
+            return request.createResponseBuilder(HttpStatus.BAD_REQUEST)
+                    .body("Request body required").build();
+        }
+
+        try {
+            List<Future<ReservationStatus>> pending = new ArrayList<>();
+            Map<String, CompletableFuture<ReservationStatus>> lastWriteBySession = new HashMap<>();
+            // at most two uploads queued per worker, so parsed orders of a large body are not all held at once
+            Semaphore inFlight = new Semaphore(bulkParallelism * 2);
+
+            int index = 0;
+            try (MappingIterator<OrderRequest> orders = mapper.readerFor(OrderRequest.class).readValues(body)) {
+                while (true) {
+                    OrderRequest order;
+                    try {
+                        if (!orders.hasNextValue()) {
+                            break;
+                        }
+                        order = orders.nextValue();
+                    } catch (Exception e) {
+                        // the stream cannot be resynchronized after malformed input
+                        pending.add(CompletableFuture.completedFuture(
+                                ReservationStatus.failed(index, null, 400, "Malformed order: " + e.getMessage())));
+                        break;
+                    }
+                    pending.add(submit(index++, order, inFlight, lastWriteBySession));
+                }
             }
 
-            BlobServiceClient serviceClient = new BlobServiceClientBuilder()
-                    .connectionString(conn)
-                    .buildClient();
-            BlobContainerClient containerClient = serviceClient.getBlobContainerClient(containerName);
-            if (!containerClient.exists()) {
-                containerClient.create();
+            List<ReservationStatus> results = new ArrayList<>(pending.size());
+            for (Future<ReservationStatus> result : pending) {
+                results.add(result.get());
             }
-            String blobName = String.format("session-%s.json", sessionId);
-            BlobClient blobClient = containerClient.getBlobClient(blobName);
+            long failed = results.stream().filter(r -> r.status() != 200).count();
+            log.info("Bulk reservation finished: {} orders, {} failed", results.size(), failed);
 
-            blobClient.upload(BinaryData.fromBytes(bytes), true);
-            log.info("Wrote blob: {}, size= {}", blobName, bytes.length);
             return request.createResponseBuilder(HttpStatus.OK)
-                    .body(String.format("Order reserved and written to blob %s", blobName))
+                    .header("Content-Type", "application/json")
+                    .body(mapper.writeValueAsString(results))
                     .build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Interrupted").build();
         } catch (Exception ex) {
-            log.error("Failed to reserve order: ", ex);
+            log.error("Failed to reserve orders: ", ex);
             return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error: " + ex.getMessage()).build();
         }
     }
-}
\ No newline at end of file
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdown();
+    }
+
+    private Future<ReservationStatus> submit(int index, OrderRequest order, Semaphore inFlight,
+                                             Map<String, CompletableFuture<ReservationStatus>> lastWriteBySession)
+            throws InterruptedException {
+        String sessionId = order.sessionId;
+        if (sessionId == null || sessionId.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ReservationStatus.failed(index, null, 400, "sessionId required"));
+        }
+
+        inFlight.acquire();
+        try {
+            Supplier<ReservationStatus> upload = () -> {
+                try {
+                    String location = reserve(sessionId, order);
+                    return ReservationStatus.reserved(index, sessionId, order.orderId, location);
+                } catch (Exception e) {
+                    log.warn("Failed to reserve order {} for session {}: {}", index, sessionId, e.getMessage());
+                    return ReservationStatus.failed(index, sessionId, 500, e.getMessage());
+                } finally {
+                    inFlight.release();
+                }
+            };
+            // chained behind the previous write of the session, whatever its outcome
+            CompletableFuture<ReservationStatus> previous = lastWriteBySession.get(sessionId);
+            CompletableFuture<ReservationStatus> write = previous == null
+                    ? CompletableFuture.supplyAsync(upload, uploadExecutor)
+                    : previous.handleAsync((status, e) -> upload.get(), uploadExecutor);
+            lastWriteBySession.put(sessionId, write);
+            return write;
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private String reserve(String sessionId, OrderRequest order) throws Exception {
+        if (order.orderId == null || order.orderId.isEmpty()) {
+            order.orderId = UUID.randomUUID().toString();
+        }
+        if (order.timestamp == null) {
+            order.timestamp = OffsetDateTime.now();
+        }
+        // serialize to json
+        byte[] bytes = mapper.writeValueAsBytes(order);
+        return reservationSink.write(String.format("session-%s.json", sessionId), bytes);
+    }
+
+    private static int bulkParallelism() {
+        String configured = System.getenv(BULK_PARALLELISM_ENV);
+        try {
+            return configured != null ? Math.max(1, Integer.parseInt(configured.trim())) : DEFAULT_BULK_PARALLELISM;
+        } catch (NumberFormatException e) {
+            return DEFAULT_BULK_PARALLELISM;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.chtrembl.petstore.orderreserver.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one order in a bulk reservation, reported in request order.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReservationStatus(int index, String sessionId, String orderId, int status,
+                                String location, String error) {
+
+    public static ReservationStatus reserved(int index, String sessionId, String orderId, String location) {
+        return new ReservationStatus(index, sessionId, orderId, 200, location, null);
+    }
+
+    public static ReservationStatus failed(int index, String sessionId, int status, String error) {
+        return new ReservationStatus(index, sessionId, null, status, null, error);
+    }
+}
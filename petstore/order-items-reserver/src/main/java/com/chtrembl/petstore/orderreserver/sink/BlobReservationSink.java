@@ -0,0 +1,61 @@
+package com.chtrembl.petstore.orderreserver.sink;
+
+import com.azure.core.util.BinaryData;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes each reservation as a blob named after the session, overwriting the previous one.
+ * <p>
+ * The container client is built, and the container created if needed, on first use only;
+ * the client is thread-safe and keeps its HTTP connection pool across invocations.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.sink.type", havingValue = "blob", matchIfMissing = true)
+@Slf4j
+public class BlobReservationSink implements ReservationSink {
+
+    @Value("${BLOB_CONNECTION_STRING:}")
+    private String connectionString;
+
+    @Value("${BLOB_CONTAINER_NAME:}")
+    private String containerName;
+
+    private volatile BlobContainerClient containerClient;
+
+    @Override
+    public String write(String name, byte[] content) {
+        containerClient().getBlobClient(name).upload(BinaryData.fromBytes(content), true);
+        log.info("Wrote blob: {}, size= {}", name, content.length);
+        return "blob " + name;
+    }
+
+    private BlobContainerClient containerClient() {
+        BlobContainerClient client = containerClient;
+        if (client == null) {
+            synchronized (this) {
+                client = containerClient;
+                if (client == null) {
+                    if (connectionString.isEmpty() || containerName.isEmpty()) {
+                        log.warn("Missing BLOB_CONNECTION_STRING or BLOB_CONTAINER_NAME env vars");
+                        throw new IllegalStateException("Storage configuration missing");
+                    }
+                    client = new BlobServiceClientBuilder()
+                            .connectionString(connectionString)
+                            .buildClient()
+                            .getBlobContainerClient(containerName);
+                    if (client.createIfNotExists()) {
+                        log.info("Created blob container: {}", containerName);
+                    }
+                    log.info("Initialized blob container client for container: {}", containerName);
+                    containerClient = client;
+                }
+            }
+        }
+        return client;
+    }
+}
@@ -0,0 +1,32 @@
+package com.chtrembl.petstore.orderreserver.sink;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the latest reservation per name in memory, for running the reserver offline.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.sink.type", havingValue = "memory")
+public class InMemoryReservationSink implements ReservationSink {
+
+    private final Map<String, byte[]> reservations = new ConcurrentHashMap<>();
+
+    @Override
+    public String write(String name, byte[] content) {
+        reservations.put(name, content.clone());
+        return "memory " + name;
+    }
+
+    public byte[] get(String name) {
+        byte[] content = reservations.get(name);
+        return content != null ? content.clone() : null;
+    }
+
+    public int size() {
+        return reservations.size();
+    }
+}
@@ -0,0 +1,21 @@
+package com.chtrembl.petstore.orderreserver.sink;
+
+import java.io.IOException;
+
+/**
+ * Destination for reserved orders.
+ * <p>
+ * Reservations are keyed by name ({@code session-<id>.json}); writing a name again replaces
+ * the earlier reservation as far as readers are concerned. Implementations must be safe for
+ * concurrent writers. The implementation is chosen with {@code reservation.sink.type}:
+ * {@code blob} (default), {@code segment-file} or {@code memory}.
+ */
+public interface ReservationSink {
+
+    /**
+     * Stores one reservation.
+     *
+     * @return a human readable location of what was written
+     */
+    String write(String name, byte[] content) throws IOException;
+}
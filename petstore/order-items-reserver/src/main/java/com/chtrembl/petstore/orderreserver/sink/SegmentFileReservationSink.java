@@ -0,0 +1,216 @@
+package com.chtrembl.petstore.orderreserver.sink;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Appends reservations to local, memory-mapped segment files.
+ * <p>
+ * Each record is {@code [length][crc32][name length][content length][name][content]}; a zero
+ * length marks the end of a segment. Segments are preallocated at {@code segment.size} and a
+ * new one is started when a record does not fit, and on every startup. Writers append to the
+ * mapping and then wait for a background flusher that forces dirty pages every
+ * {@code segment.fsync-interval}, so one fsync makes a whole batch of writes durable.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.sink.type", havingValue = "segment-file")
+@Slf4j
+public class SegmentFileReservationSink implements ReservationSink {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Short.BYTES + Integer.BYTES;
+
+    @Value("${reservation.sink.segment.dir:${java.io.tmpdir}/order-reservations}")
+    private Path directory;
+
+    @Value("${reservation.sink.segment.size:67108864}")
+    private int segmentSize;
+
+    @Value("${reservation.sink.segment.fsync-interval:PT0.05S}")
+    private Duration fsyncInterval;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition durable = lock.newCondition();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reservation-segment-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by lock
+    private int segmentIndex;
+    private Path segmentPath;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int forcedOffset;
+    private long appendedBytes;
+    private long durableBytes;
+
+    @PostConstruct
+    void open() throws IOException {
+        Files.createDirectories(directory);
+        lock.lock();
+        try {
+            segmentIndex = lastSegmentIndex();
+            openNextSegment();
+        } finally {
+            lock.unlock();
+        }
+        long interval = fsyncInterval.toNanos();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.NANOSECONDS);
+        log.info("Segment file reservation sink writing to {} (segment size {}, fsync every {})",
+                directory, segmentSize, fsyncInterval);
+    }
+
+    @Override
+    public String write(String name, byte[] content) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int recordLength = HEADER_BYTES + nameBytes.length + content.length;
+        if (nameBytes.length > Short.MAX_VALUE || recordLength + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Reservation " + name + " does not fit in a segment");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(nameBytes);
+        crc.update(content);
+
+        lock.lock();
+        try {
+            // keep room for the zero end marker
+            if (buffer.remaining() < recordLength + Integer.BYTES) {
+                rollOver();
+            }
+            int offset = buffer.position();
+            buffer.putInt(recordLength)
+                    .putInt((int) crc.getValue())
+                    .putShort((short) nameBytes.length)
+                    .putInt(content.length)
+                    .put(nameBytes)
+                    .put(content);
+            appendedBytes += recordLength;
+
+            long target = appendedBytes;
+            while (durableBytes < target) {
+                durable.await();
+            }
+            return segmentPath.getFileName() + "@" + offset;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for reservation " + name + " to be flushed");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        flusher.shutdown();
+        lock.lock();
+        try {
+            buffer.force();
+            durableBytes = appendedBytes;
+            durable.signalAll();
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces everything appended so far, outside the lock so writers can keep appending
+     * while the fsync is in progress.
+     */
+    private void flush() {
+        MappedByteBuffer target;
+        int from;
+        int to;
+        long upTo;
+        lock.lock();
+        try {
+            if (durableBytes == appendedBytes) {
+                return;
+            }
+            target = buffer;
+            from = forcedOffset;
+            to = buffer.position();
+            upTo = appendedBytes;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            target.force(from, to - from);
+        } catch (Exception e) {
+            log.error("Failed to flush reservation segment: {}", e.getMessage(), e);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (target == buffer) {
+                forcedOffset = Math.max(forcedOffset, to);
+            }
+            durableBytes = Math.max(durableBytes, upTo);
+            durable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caller holds the lock.
+     */
+    private void rollOver() throws IOException {
+        buffer.force();
+        durableBytes = appendedBytes;
+        durable.signalAll();
+        channel.close();
+        openNextSegment();
+    }
+
+    /**
+     * Caller holds the lock.
+     */
+    private void openNextSegment() throws IOException {
+        segmentIndex++;
+        segmentPath = directory.resolve(String.format("segment-%06d.log", segmentIndex));
+        channel = FileChannel.open(segmentPath,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        forcedOffset = 0;
+        log.info("Opened reservation segment {}", segmentPath);
+    }
+
+    private int lastSegmentIndex() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> SEGMENT_NAME.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .mapToInt(matcher -> Integer.parseInt(matcher.group(1)))
+                    .max()
+                    .orElse(0);
+        }
+    }
+}
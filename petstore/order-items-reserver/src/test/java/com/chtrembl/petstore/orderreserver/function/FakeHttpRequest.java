@@ -0,0 +1,113 @@
+package com.chtrembl.petstore.orderreserver.function;
+
+import com.microsoft.azure.functions.HttpMethod;
+import com.microsoft.azure.functions.HttpRequestMessage;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+import com.microsoft.azure.functions.HttpStatusType;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * POST request with a body, for calling the functions without the Functions host.
+ */
+class FakeHttpRequest implements HttpRequestMessage<String> {
+
+    private final String body;
+    private final Map<String, String> headers;
+
+    FakeHttpRequest(String body) {
+        this(body, Map.of());
+    }
+
+    FakeHttpRequest(String body, Map<String, String> headers) {
+        this.body = body;
+        this.headers = headers;
+    }
+
+    @Override
+    public URI getUri() {
+        return URI.create("http://localhost/api");
+    }
+
+    @Override
+    public HttpMethod getHttpMethod() {
+        return HttpMethod.POST;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public Map<String, String> getQueryParameters() {
+        return Map.of();
+    }
+
+    @Override
+    public String getBody() {
+        return body;
+    }
+
+    @Override
+    public HttpResponseMessage.Builder createResponseBuilder(HttpStatus status) {
+        return new Response(status);
+    }
+
+    @Override
+    public HttpResponseMessage.Builder createResponseBuilder(HttpStatusType status) {
+        return new Response(status);
+    }
+
+    private static final class Response implements HttpResponseMessage, HttpResponseMessage.Builder {
+
+        private final Map<String, String> headers = new HashMap<>();
+        private HttpStatusType status;
+        private Object body;
+
+        private Response(HttpStatusType status) {
+            this.status = status;
+        }
+
+        @Override
+        public HttpResponseMessage.Builder status(HttpStatusType status) {
+            this.status = status;
+            return this;
+        }
+
+        @Override
+        public HttpResponseMessage.Builder header(String key, String value) {
+            headers.put(key, value);
+            return this;
+        }
+
+        @Override
+        public HttpResponseMessage.Builder body(Object body) {
+            this.body = body;
+            return this;
+        }
+
+        @Override
+        public HttpResponseMessage build() {
+            return this;
+        }
+
+        @Override
+        public HttpStatusType getStatus() {
+            return status;
+        }
+
+        @Override
+        public String getHeader(String key) {
+            return headers.get(key);
+        }
+
+        @Override
+        public Object getBody() {
+            return body;
+        }
+    }
+}
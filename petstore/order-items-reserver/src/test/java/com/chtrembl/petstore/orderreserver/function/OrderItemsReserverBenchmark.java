@@ -0,0 +1,120 @@
+package com.chtrembl.petstore.orderreserver.function;
+
+import com.chtrembl.petstore.orderreserver.sink.InMemoryReservationSink;
+import com.chtrembl.petstore.orderreserver.sink.ReservationSink;
+import com.chtrembl.petstore.orderreserver.sink.SegmentFileReservationSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs the reserver offline: single and bulk reservations through the functions, written to
+ * the in-memory sink and to segment files, without the Functions host or blob storage.
+ * <p>
+ * Not part of the unit test run. Start it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.chtrembl.petstore.orderreserver.function.OrderItemsReserverBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class OrderItemsReserverBenchmark {
+
+    @Param({"memory", "segment-file"})
+    public String sink;
+
+    @Param({"100"})
+    public int bulkSize;
+
+    private Path directory;
+    private SegmentFileReservationSink segmentSink;
+    private OrderItemsReserverFunction function;
+    private String order;
+    private String bulk;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ReservationSink reservationSink;
+        if ("segment-file".equals(sink)) {
+            directory = Files.createTempDirectory("order-reservations");
+            segmentSink = new SegmentFileReservationSink();
+            ReflectionTestUtils.setField(segmentSink, "directory", directory);
+            ReflectionTestUtils.setField(segmentSink, "segmentSize", 64 << 20);
+            ReflectionTestUtils.setField(segmentSink, "fsyncInterval", Duration.ofMillis(50));
+            ReflectionTestUtils.invokeMethod(segmentSink, "open");
+            reservationSink = segmentSink;
+        } else {
+            reservationSink = new InMemoryReservationSink();
+        }
+        function = new OrderItemsReserverFunction(reservationSink);
+
+        order = order("single", 0);
+        StringBuilder orders = new StringBuilder("[");
+        for (int i = 0; i < bulkSize; i++) {
+            orders.append(i > 0 ? "," : "").append(order("bulk-" + i, i));
+        }
+        bulk = orders.append(']').toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        function.shutdown();
+        if (segmentSink != null) {
+            ReflectionTestUtils.invokeMethod(segmentSink, "close");
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Object reserveOrder() {
+        return function.reserveOrder(new FakeHttpRequest(order), null).getBody();
+    }
+
+    @Benchmark
+    public Object reserveOrders() {
+        return function.reserveOrders(new FakeHttpRequest(bulk), null).getBody();
+    }
+
+    private static String order(String sessionId, int n) {
+        return "{\"sessionId\":\"" + sessionId + "\",\"id\":\"order-" + n + "\",\"products\":["
+                + "{\"id\":1,\"name\":\"Ball\",\"quantity\":2,\"price\":9.99,\"category\":\"Toys\"},"
+                + "{\"id\":2,\"name\":\"Rope\",\"quantity\":1,\"price\":4.5,\"category\":\"Toys\"}],"
+                + "\"total\":24.48}";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OrderItemsReserverBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
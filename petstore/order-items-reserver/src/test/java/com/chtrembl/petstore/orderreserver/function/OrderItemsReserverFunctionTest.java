@@ -0,0 +1,141 @@
+package com.chtrembl.petstore.orderreserver.function;
+
+import com.chtrembl.petstore.orderreserver.sink.InMemoryReservationSink;
+import com.chtrembl.petstore.orderreserver.sink.ReservationSink;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderItemsReserverFunctionTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final InMemoryReservationSink sink = new InMemoryReservationSink();
+    private OrderItemsReserverFunction function = new OrderItemsReserverFunction(sink);
+
+    @AfterEach
+    void shutdown() {
+        function.shutdown();
+    }
+
+    @Test
+    void reservesOneOrderForTheSessionHeader() throws Exception {
+        HttpResponseMessage response = function.reserveOrder(
+                new FakeHttpRequest("{\"id\":\"order-1\"}", Map.of("x-session-id", "a")), null);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK);
+        assertThat(reservation("a").get("id").asText()).isEqualTo("order-1");
+    }
+
+    @Test
+    void reservesEveryOrderOfAJsonArray() throws Exception {
+        JsonNode statuses = reserveOrders("[" + order("a", "order-1") + "," + order("b", "order-2") + "]");
+
+        assertThat(statuses).hasSize(2);
+        assertReserved(statuses.get(0), 0, "a", "order-1");
+        assertReserved(statuses.get(1), 1, "b", "order-2");
+        assertThat(sink.size()).isEqualTo(2);
+    }
+
+    @Test
+    void reservesEveryOrderOfNewlineDelimitedJson() throws Exception {
+        JsonNode statuses = reserveOrders(order("a", "order-1") + "\n" + order("b", "order-2") + "\n");
+
+        assertThat(statuses).hasSize(2);
+        assertReserved(statuses.get(0), 0, "a", "order-1");
+        assertReserved(statuses.get(1), 1, "b", "order-2");
+        assertThat(reservation("b").get("id").asText()).isEqualTo("order-2");
+    }
+
+    @Test
+    void reportsAnOrderWithoutSessionAndReservesTheOthers() throws Exception {
+        JsonNode statuses = reserveOrders("[" + order("a", "order-1") + ",{\"id\":\"order-2\"},"
+                + order("c", "order-3") + "]");
+
+        assertReserved(statuses.get(0), 0, "a", "order-1");
+        assertThat(statuses.get(1).get("index").asInt()).isEqualTo(1);
+        assertThat(statuses.get(1).get("status").asInt()).isEqualTo(400);
+        assertReserved(statuses.get(2), 2, "c", "order-3");
+    }
+
+    @Test
+    void stopsAtMalformedInput() throws Exception {
+        JsonNode statuses = reserveOrders(order("a", "order-1") + "\n{\"sessionId\":\n" + order("c", "order-3"));
+
+        assertThat(statuses).hasSize(2);
+        assertReserved(statuses.get(0), 0, "a", "order-1");
+        assertThat(statuses.get(1).get("index").asInt()).isEqualTo(1);
+        assertThat(statuses.get(1).get("status").asInt()).isEqualTo(400);
+        assertThat(sink.get("session-c.json")).isNull();
+    }
+
+    @Test
+    void rejectsAnEmptyBody() {
+        HttpResponseMessage response = function.reserveOrders(new FakeHttpRequest(" "), null);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void lastOrderOfASessionWins() throws Exception {
+        // earlier writes take longer, so unordered writes of one session would finish out of order
+        AtomicInteger calls = new AtomicInteger();
+        ReservationSink slowFirst = (name, content) -> {
+            try {
+                Thread.sleep(Math.max(0, 20 - 2 * calls.getAndIncrement()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return sink.write(name, content);
+        };
+        function.shutdown();
+        function = new OrderItemsReserverFunction(slowFirst);
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            body.append(order("shared", "order-" + i)).append('\n');
+            body.append(order("other-" + i, "other-" + i)).append('\n');
+        }
+        JsonNode statuses = reserveOrders(body.toString());
+
+        assertThat(statuses).hasSize(20);
+        for (int i = 0; i < statuses.size(); i++) {
+            assertThat(statuses.get(i).get("index").asInt()).isEqualTo(i);
+            assertThat(statuses.get(i).get("status").asInt()).isEqualTo(200);
+        }
+        assertThat(reservation("shared").get("id").asText()).isEqualTo("order-9");
+    }
+
+    private JsonNode reserveOrders(String body) throws Exception {
+        HttpResponseMessage response = function.reserveOrders(new FakeHttpRequest(body), null);
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK);
+        return MAPPER.readTree((String) response.getBody());
+    }
+
+    private JsonNode reservation(String sessionId) throws Exception {
+        byte[] content = sink.get("session-" + sessionId + ".json");
+        assertThat(content).as("reservation of %s", sessionId).isNotNull();
+        return MAPPER.readTree(new String(content, StandardCharsets.UTF_8));
+    }
+
+    private static void assertReserved(JsonNode status, int index, String sessionId, String orderId) {
+        assertThat(status.get("index").asInt()).isEqualTo(index);
+        assertThat(status.get("status").asInt()).isEqualTo(200);
+        assertThat(status.get("sessionId").asText()).isEqualTo(sessionId);
+        assertThat(status.get("orderId").asText()).isEqualTo(orderId);
+    }
+
+    private static String order(String sessionId, String orderId) {
+        return "{\"sessionId\":\"" + sessionId + "\",\"id\":\"" + orderId + "\","
+                + "\"products\":[{\"id\":1,\"name\":\"Ball\",\"quantity\":2}],\"total\":9.99}";
+    }
+}
@@ -0,0 +1,39 @@
+package com.chtrembl.petstore.orderreserver.sink;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryReservationSinkTest {
+
+    @Test
+    void keepsTheLatestReservationPerName() {
+        InMemoryReservationSink sink = new InMemoryReservationSink();
+
+        assertThat(sink.write("session-a.json", bytes("first"))).isEqualTo("memory session-a.json");
+        sink.write("session-a.json", bytes("second"));
+        sink.write("session-b.json", bytes("other"));
+
+        assertThat(sink.get("session-a.json")).isEqualTo(bytes("second"));
+        assertThat(sink.get("session-c.json")).isNull();
+        assertThat(sink.size()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsItsOwnCopyOfTheContent() {
+        InMemoryReservationSink sink = new InMemoryReservationSink();
+        byte[] content = bytes("order");
+
+        sink.write("session-a.json", content);
+        content[0] = 'X';
+        sink.get("session-a.json")[1] = 'X';
+
+        assertThat(sink.get("session-a.json")).isEqualTo(bytes("order"));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,191 @@
+package com.chtrembl.petstore.orderreserver.sink;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentFileReservationSinkTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<SegmentFileReservationSink> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeSinks() throws IOException {
+        for (SegmentFileReservationSink sink : opened) {
+            sink.close();
+        }
+    }
+
+    @Test
+    void writesLengthCrcAndSizesBeforeNameAndContent() throws Exception {
+        SegmentFileReservationSink sink = open(1024);
+
+        String location = sink.write("session-a.json", bytes("{\"id\":\"a\"}"));
+        sink.write("session-b.json", bytes("{\"id\":\"b\"}"));
+        restart(sink);
+
+        assertThat(location).isEqualTo("segment-000001.log@0");
+        List<Record> records = read(directory.resolve("segment-000001.log"));
+        assertThat(records).extracting(Record::name).containsExactly("session-a.json", "session-b.json");
+        assertThat(records.get(0).content()).isEqualTo("{\"id\":\"a\"}");
+    }
+
+    @Test
+    void startsANewSegmentWhenARecordDoesNotFit() throws Exception {
+        SegmentFileReservationSink sink = open(256);
+        byte[] content = new byte[80];
+
+        // 14 bytes of header, 14 of name and 80 of content: two records and the end marker fit
+        assertThat(sink.write("session-a.json", content)).isEqualTo("segment-000001.log@0");
+        assertThat(sink.write("session-b.json", content)).isEqualTo("segment-000001.log@108");
+        assertThat(sink.write("session-c.json", content)).isEqualTo("segment-000002.log@0");
+        restart(sink);
+
+        assertThat(read(directory.resolve("segment-000001.log"))).hasSize(2);
+        assertThat(read(directory.resolve("segment-000002.log"))).hasSize(1);
+    }
+
+    @Test
+    void rejectsAReservationLargerThanASegment() throws Exception {
+        SegmentFileReservationSink sink = open(256);
+
+        assertThatThrownBy(() -> sink.write("session-a.json", new byte[256]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void startsANewSegmentAfterARestart() throws Exception {
+        SegmentFileReservationSink sink = open(1024);
+        sink.write("session-a.json", bytes("before"));
+        restart(sink);
+
+        SegmentFileReservationSink reopened = open(1024);
+
+        assertThat(reopened.write("session-a.json", bytes("after"))).isEqualTo("segment-000002.log@0");
+        restart(reopened);
+        assertThat(read(directory.resolve("segment-000001.log")))
+                .extracting(Record::content).containsExactly("before");
+        assertThat(read(directory.resolve("segment-000002.log")))
+                .extracting(Record::content).containsExactly("after");
+    }
+
+    @Test
+    void concurrentWritersAllReturnOnceFlushedAndNothingIsLost() throws Exception {
+        SegmentFileReservationSink sink = open(4096);
+        int threads = 8;
+        int writes = 100;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < writes; i++) {
+                        sink.write("session-" + thread + "-" + i + ".json", bytes("{\"thread\":" + thread + "}"));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                // every write waits for a batched fsync, none may be left waiting
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        restart(sink);
+
+        Set<String> names = new HashSet<>();
+        int records = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                for (Record record : read(file)) {
+                    names.add(record.name());
+                    records++;
+                }
+            }
+        }
+        assertThat(records).isEqualTo(threads * writes);
+        assertThat(names).hasSize(threads * writes);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).as("segments").isGreaterThan(1);
+        }
+    }
+
+    private SegmentFileReservationSink open(int segmentSize) throws IOException {
+        SegmentFileReservationSink sink = new SegmentFileReservationSink();
+        ReflectionTestUtils.setField(sink, "directory", directory);
+        ReflectionTestUtils.setField(sink, "segmentSize", segmentSize);
+        ReflectionTestUtils.setField(sink, "fsyncInterval", Duration.ofMillis(5));
+        sink.open();
+        opened.add(sink);
+        return sink;
+    }
+
+    private void restart(SegmentFileReservationSink sink) throws IOException {
+        sink.close();
+        opened.remove(sink);
+    }
+
+    /**
+     * Reads records up to the zero end marker, checking each one's CRC.
+     */
+    private static List<Record> read(Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        List<Record> records = new ArrayList<>();
+        while (buffer.remaining() >= Integer.BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length == 0) {
+                break;
+            }
+            int crc = buffer.getInt();
+            byte[] name = new byte[buffer.getShort()];
+            byte[] content = new byte[buffer.getInt()];
+            buffer.get(name).get(content);
+            assertThat(buffer.position() - start).as("record length").isEqualTo(length);
+
+            CRC32 expected = new CRC32();
+            expected.update(name);
+            expected.update(content);
+            assertThat(crc).as("crc of record at %d", start).isEqualTo((int) expected.getValue());
+            records.add(new Record(new String(name, StandardCharsets.UTF_8), new String(content, StandardCharsets.UTF_8)));
+        }
+        return records;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record Record(String name, String content) {
+    }
+}
@@ -2,11 +2,14 @@ package com.chtrembl.petstoreapp.client;
 
 import com.chtrembl.petstoreapp.config.FeignConfig;
 import com.chtrembl.petstoreapp.model.Order;
+import feign.Response;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 @FeignClient(
         name = "order-service",
@@ -18,8 +21,13 @@ public interface OrderServiceClient {
     @PostMapping("/petstoreorderservice/v2/store/order")
     Order createOrUpdateOrder(@RequestBody String orderJson);
 
+    /**
+     * Returns the raw response, so a 304 for a matching {@code ifNoneMatch} reaches the caller
+     * instead of the error decoder. The caller reads and closes the body.
+     */
     @GetMapping("/petstoreorderservice/v2/store/order/{orderId}")
-    Order getOrder(@PathVariable("orderId") String orderId);
+    Response getOrder(@PathVariable("orderId") String orderId,
+                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
 
     @GetMapping("/petstoreorderservice/v2/health")
     String getHealth();
@@ -20,4 +20,14 @@ public interface ReserveOrderClient {
             @RequestHeader("x-session-id") String sessionId,
             @RequestParam("code") String functionCode
     );
+
+    /**
+     * Reserves a JSON array of orders, each carrying its own {@code sessionId}, and answers
+     * with the status of every order by its position in the array.
+     */
+    @PostMapping("/api/reserveOrders")
+    ResponseEntity<String> reserveOrders(
+            @RequestBody String ordersJson,
+            @RequestParam("code") String functionCode
+    );
 }
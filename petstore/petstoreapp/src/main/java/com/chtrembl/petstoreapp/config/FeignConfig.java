@@ -14,10 +14,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.util.StringUtils;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
-import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import static com.chtrembl.petstoreapp.config.Constants.AUTH_TYPE;
@@ -159,17 +156,30 @@ public class FeignConfig {
 
         @Override
         public void apply(RequestTemplate template) {
-            webRequest.getHeaders().forEach((key, values) -> {
-                values.forEach(value -> template.header(key, value));
-            });
+            // Page fan-out tasks carry a snapshot taken on the request thread; background
+            // refreshes (e.g. CatalogCache) run outside of any request or session scope
+            RequestContextSnapshot request = RequestContextSnapshot.current();
+            if (request == null) {
+                request = RequestContextSnapshot.capture(webRequest, sessionUser);
+            }
+
+            if (request != null) {
+                request.headers().forEach((key, values) -> {
+                    values.forEach(value -> template.header(key, value));
+                });
+            }
 
             template.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
             template.header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
             template.header(CACHE_CONTROL, "no-cache");
 
-            addSessionHeaders(template);
+            if (request != null) {
+                addSessionHeaders(template, request);
+            }
             addCorrelationHeaders(template);
-            addUserContextHeaders(template);
+            if (request != null) {
+                addUserContextHeaders(template, request);
+            }
             addServiceHeaders(template);
 
             template.header(X_REQUEST_TIMESTAMP, String.valueOf(System.currentTimeMillis()));
@@ -186,22 +196,15 @@ public class FeignConfig {
             log.debug("All headers: {}", template.headers());
         }
 
-        private void addSessionHeaders(RequestTemplate template) {
-            if (sessionUser != null && StringUtils.hasText(sessionUser.getSessionId())) {
-                template.header(X_SESSION_ID, sessionUser.getSessionId());
-                template.header(X_SESSION_ID_LOWERCASE, sessionUser.getSessionId());
-                log.debug("Added session ID header: {}", sessionUser.getSessionId());
+        private void addSessionHeaders(RequestTemplate template, RequestContextSnapshot request) {
+            if (StringUtils.hasText(request.sessionId())) {
+                template.header(X_SESSION_ID, request.sessionId());
+                template.header(X_SESSION_ID_LOWERCASE, request.sessionId());
+                log.debug("Added session ID header: {}", request.sessionId());
             }
 
-            try {
-                ServletRequestAttributes attributes =
-                        (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
-                String sessionId = attributes.getRequest().getSession().getId();
-                if (StringUtils.hasText(sessionId)) {
-                    template.header(X_HTTP_SESSION_ID, sessionId);
-                }
-            } catch (Exception e) {
-                log.debug("Could not extract HTTP session ID: {}", e.getMessage());
+            if (StringUtils.hasText(request.httpSessionId())) {
+                template.header(X_HTTP_SESSION_ID, request.httpSessionId());
             }
         }
 
@@ -211,7 +214,7 @@ public class FeignConfig {
                 template.header(X_REQUEST_ID, requestId);
                 template.header(X_CORRELATION_ID, requestId);
             } else {
-                String newRequestId = UUID.randomUUID().toString().substring(0, 8);
+                String newRequestId = TraceIds.newRequestId();
                 template.header(X_REQUEST_ID, newRequestId);
                 template.header(X_CORRELATION_ID, newRequestId);
                 log.debug("Generated new request ID: {}", newRequestId);
@@ -228,25 +231,23 @@ public class FeignConfig {
             }
         }
 
-        private void addUserContextHeaders(RequestTemplate template) {
-            if (sessionUser != null) {
-                if (StringUtils.hasText(sessionUser.getName())) {
-                    template.header(X_USER_NAME, sessionUser.getName());
-                }
+        private void addUserContextHeaders(RequestTemplate template, RequestContextSnapshot request) {
+            if (StringUtils.hasText(request.userName())) {
+                template.header(X_USER_NAME, request.userName());
+            }
 
-                if (StringUtils.hasText(sessionUser.getEmail())) {
-                    template.header(X_USER_EMAIL, sessionUser.getEmail());
-                }
+            if (StringUtils.hasText(request.userEmail())) {
+                template.header(X_USER_EMAIL, request.userEmail());
+            }
 
-                String authType = MDC.get(AUTH_TYPE);
-                if (StringUtils.hasText(authType)) {
-                    template.header(X_AUTH_TYPE, authType);
-                }
+            String authType = MDC.get(AUTH_TYPE);
+            if (StringUtils.hasText(authType)) {
+                template.header(X_AUTH_TYPE, authType);
+            }
 
-                String isAuthenticated = MDC.get(IS_AUTHENTICATED);
-                if (StringUtils.hasText(isAuthenticated)) {
-                    template.header(X_AUTHENTICATED, isAuthenticated);
-                }
+            String isAuthenticated = MDC.get(IS_AUTHENTICATED);
+            if (StringUtils.hasText(isAuthenticated)) {
+                template.header(X_AUTHENTICATED, isAuthenticated);
             }
         }
 
@@ -0,0 +1,139 @@
+package com.chtrembl.petstoreapp.config;
+
+import feign.Client;
+import feign.hc5.ApacheHttp5Client;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.routing.DefaultRoutePlanner;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.routing.HttpRoute;
+import org.apache.hc.client5.http.routing.HttpRoutePlanner;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared, pooled HTTP/1.1 keep-alive transport for all Feign clients.
+ * <p>
+ * Each downstream service gets its own route limit from
+ * {@code petstore.service.<name>.max-connections}. Services whose URLs resolve to the same
+ * route share one pool entry, limited to the sum of their limits. Per-client connect/read
+ * timeouts are mapped onto {@code spring.cloud.openfeign.client.config.*} in application.yml.
+ */
+@Configuration
+@Slf4j
+public class FeignHttpClientConfig {
+
+    private static final List<String> SERVICES = List.of("pet", "product", "order", "reserveOrder");
+
+    private static final HttpRoutePlanner ROUTE_PLANNER = new DefaultRoutePlanner(DefaultSchemePortResolver.INSTANCE);
+
+    @Value("${petstore.service.http.max-total:200}")
+    private int maxTotal;
+
+    @Value("${petstore.service.http.max-per-route:20}")
+    private int maxPerRoute;
+
+    @Value("${petstore.service.http.connect-timeout:PT5S}")
+    private Duration connectTimeout;
+
+    @Value("${petstore.service.http.time-to-live:PT5M}")
+    private Duration timeToLive;
+
+    @Value("${petstore.service.http.idle-eviction:PT30S}")
+    private Duration idleEviction;
+
+    @Bean
+    public PoolingHttpClientConnectionManager feignConnectionManager(Environment environment) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setTimeToLive(TimeValue.of(timeToLive))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        Map<HttpRoute, Integer> routeLimits = new LinkedHashMap<>();
+        Map<HttpRoute, List<String>> routeServices = new LinkedHashMap<>();
+        for (String service : SERVICES) {
+            String url = environment.getProperty("petstore.service." + service + ".url");
+            Integer maxConnections = environment.getProperty(
+                    "petstore.service." + service + ".max-connections", Integer.class);
+            if (url != null && maxConnections != null) {
+                HttpRoute route = routeOf(url);
+                routeLimits.merge(route, maxConnections, Integer::sum);
+                routeServices.computeIfAbsent(route, r -> new ArrayList<>()).add(service);
+            }
+        }
+
+        routeLimits.forEach((route, maxConnections) -> {
+            List<String> services = routeServices.get(route);
+            if (services.size() > 1) {
+                log.warn("Feign services {} share the route {}, pooled together with {} connections",
+                        services, route.getTargetHost(), maxConnections);
+            } else {
+                log.info("Feign connection pool for {} ({}) limited to {} connections",
+                        services.get(0), route.getTargetHost(), maxConnections);
+            }
+            connectionManager.setMaxPerRoute(route, maxConnections);
+        });
+
+        log.info("Feign connection pool configured with maxTotal={}, maxPerRoute={}", maxTotal, maxPerRoute);
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient feignHttpClient(PoolingHttpClientConnectionManager feignConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(feignConnectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .build();
+    }
+
+    @Bean
+    public Client feignClient(CloseableHttpClient feignHttpClient) {
+        return new ApacheHttp5Client(feignHttpClient);
+    }
+
+    /**
+     * Publishes leased, pending and available connection gauges under httpcomponents.httpclient.pool.*
+     */
+    @Bean
+    public MeterBinder feignConnectionPoolMetrics(PoolingHttpClientConnectionManager feignConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(feignConnectionManager, "feign");
+    }
+
+    /**
+     * Asks the client's own route planner for the route of {@code url}, so that the per-route
+     * limit matches the route requests are actually pooled under.
+     */
+    private static HttpRoute routeOf(String url) {
+        try {
+            return ROUTE_PLANNER.determineRoute(HttpHost.create(URI.create(url)), HttpClientContext.create());
+        } catch (HttpException e) {
+            throw new IllegalStateException("Cannot determine the HTTP route for " + url, e);
+        }
+    }
+}
@@ -8,8 +8,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.HandlerInterceptor;
 
-import java.util.UUID;
-
 import static com.chtrembl.petstoreapp.config.Constants.CLIENT_IP;
 import static com.chtrembl.petstoreapp.config.Constants.EXCEPTION_MESSAGE;
 import static com.chtrembl.petstoreapp.config.Constants.EXCEPTION_TYPE;
@@ -46,6 +44,11 @@ import static com.chtrembl.petstoreapp.config.Constants.X_TRACE_ID;
 @Slf4j
 public class MDCInterceptor implements HandlerInterceptor {
 
+    private static final String[] CLIENT_IP_HEADERS = {
+            X_FORWARDED_FOR, X_REAL_IP, PROXY_CLIENT_IP,
+            WL_PROXY_CLIENT_IP, HTTP_X_FORWARDED_FOR
+    };
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
                              Object handler) throws Exception {
@@ -80,10 +83,10 @@ public class MDCInterceptor implements HandlerInterceptor {
 
             Long startTime = (Long) request.getAttribute("startTime");
             if (startTime != null) {
-                long duration = System.currentTimeMillis() - startTime;
-                MDC.put(REQUEST_DURATION, String.valueOf(duration));
+                String duration = String.valueOf(System.currentTimeMillis() - startTime);
+                MDC.put(REQUEST_DURATION, duration);
 
-                response.setHeader(X_REQUEST_DURATION, String.valueOf(duration));
+                response.setHeader(X_REQUEST_DURATION, duration);
             }
 
             if (ex != null) {
@@ -116,7 +119,7 @@ public class MDCInterceptor implements HandlerInterceptor {
             return requestId;
         }
 
-        requestId = UUID.randomUUID().toString().substring(0, 8);
+        requestId = TraceIds.newRequestId();
         log.debug("Generated new request ID: {}", requestId);
         return requestId;
     }
@@ -124,7 +127,7 @@ public class MDCInterceptor implements HandlerInterceptor {
     private void handleDistributedTracing(HttpServletRequest request, HttpServletResponse response) {
         String traceId = request.getHeader(X_TRACE_ID);
         if (!StringUtils.hasText(traceId)) {
-            traceId = UUID.randomUUID().toString().replaceAll("-", "");
+            traceId = TraceIds.newTraceId();
         }
         MDC.put(TRACE_ID, traceId);
         response.setHeader(X_TRACE_ID, traceId);
@@ -134,7 +137,7 @@ public class MDCInterceptor implements HandlerInterceptor {
             MDC.put(PARENT_SPAN_ID, parentSpanId);
         }
 
-        String spanId = UUID.randomUUID().toString().substring(0, 16);
+        String spanId = TraceIds.newSpanId();
         MDC.put(SPAN_ID, spanId);
         response.setHeader(X_SPAN_ID, spanId);
 
@@ -191,18 +194,11 @@ public class MDCInterceptor implements HandlerInterceptor {
     }
 
     private String getClientIpAddress(HttpServletRequest request) {
-        String[] headerNames = {
-                X_FORWARDED_FOR, X_REAL_IP, PROXY_CLIENT_IP,
-                WL_PROXY_CLIENT_IP, HTTP_X_FORWARDED_FOR
-        };
-
-        for (String header : headerNames) {
+        for (String header : CLIENT_IP_HEADERS) {
             String ip = request.getHeader(header);
             if (StringUtils.hasText(ip) && !"unknown".equalsIgnoreCase(ip)) {
-                if (ip.contains(",")) {
-                    ip = ip.split(",")[0].trim();
-                }
-                return ip;
+                int comma = ip.indexOf(',');
+                return comma >= 0 ? ip.substring(0, comma).trim() : ip;
             }
         }
 
@@ -0,0 +1,77 @@
+package com.chtrembl.petstoreapp.config;
+
+import com.chtrembl.petstoreapp.model.User;
+import com.chtrembl.petstoreapp.model.WebRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.function.Supplier;
+
+/**
+ * The request and session values the Feign interceptor sends downstream, copied on the
+ * request thread. Work that can outlive the request, such as the page fan-out, is bound to
+ * a snapshot instead of the request's {@link RequestAttributes}, so it never reads a request
+ * or session that the container has already recycled.
+ */
+@Slf4j
+public record RequestContextSnapshot(MultiValueMap<String, String> headers, String sessionId,
+                                     String httpSessionId, String userName, String userEmail) {
+
+    private static final ThreadLocal<RequestContextSnapshot> BOUND = new ThreadLocal<>();
+
+    /**
+     * Copies the values of the current request; must run on the request thread.
+     *
+     * @return the snapshot, or null outside of a request
+     */
+    public static RequestContextSnapshot capture(WebRequest webRequest, User sessionUser) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        webRequest.getHeaders().forEach(headers::addAll);
+
+        String httpSessionId = null;
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            try {
+                httpSessionId = servletAttributes.getRequest().getSession().getId();
+            } catch (Exception e) {
+                log.debug("Could not extract HTTP session ID: {}", e.getMessage());
+            }
+        }
+
+        return new RequestContextSnapshot(CollectionUtils.unmodifiableMultiValueMap(headers),
+                sessionUser.getSessionId(), httpSessionId, sessionUser.getName(), sessionUser.getEmail());
+    }
+
+    /**
+     * @return the snapshot bound to the current thread, or null if there is none
+     */
+    public static RequestContextSnapshot current() {
+        return BOUND.get();
+    }
+
+    /**
+     * Runs {@code call} with this snapshot bound to the current thread.
+     */
+    public <T> T callWith(Supplier<T> call) {
+        RequestContextSnapshot previous = BOUND.get();
+        BOUND.set(this);
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                BOUND.set(previous);
+            } else {
+                BOUND.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.chtrembl.petstoreapp.config.health;
+
+import com.chtrembl.petstoreapp.model.ContainerEnvironment;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Probes the pet, product and order services in parallel and keeps the last results.
+ * <p>
+ * Probes run in the background on a schedule, and again whenever a cached result is older
+ * than {@code petstore.health.cache-ttl}. The downstream health indicators only read the
+ * cached result, so an actuator health request never waits on a downstream service.
+ */
+@Component
+@Slf4j
+class DownstreamHealthProbe {
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Downstream> downstreams;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    @Value("${petstore.health.timeout:PT5S}")
+    private Duration timeout;
+
+    @Value("${petstore.health.cache-ttl:PT30S}")
+    private Duration cacheTtl;
+
+    DownstreamHealthProbe(ContainerEnvironment containerEnvironment, WebClient webClient) {
+        this.webClient = webClient;
+        this.downstreams = List.of(
+                new Downstream("petService", "Pet",
+                        containerEnvironment::getPetStorePetServiceURL, "/petstorepetservice/v2/health"),
+                new Downstream("productService", "Product",
+                        containerEnvironment::getPetStoreProductServiceURL, "/petstoreproductservice/v2/health"),
+                new Downstream("orderService", "Order",
+                        containerEnvironment::getPetStoreOrderServiceURL, "/petstoreorderservice/v2/health"));
+    }
+
+    /**
+     * @return the last probed health of the named downstream, or UNKNOWN before the first probe completes
+     */
+    Health current(String name) {
+        Snapshot current = snapshot.get();
+        if (current == null || current.isOlderThan(cacheTtl)) {
+            probeAll();
+        }
+        if (current == null) {
+            return Health.unknown()
+                    .withDetail("reason", "Health check pending")
+                    .build();
+        }
+        return current.results().getOrDefault(name, Health.unknown().build());
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${petstore.health.refresh-interval:PT15S}")
+    public void refresh() {
+        probeAll();
+    }
+
+    /**
+     * Starts a parallel probe of all downstreams unless one is already running.
+     */
+    private void probeAll() {
+        if (!probing.compareAndSet(false, true)) {
+            return;
+        }
+        Flux.fromIterable(downstreams)
+                .flatMap(downstream -> probe(downstream).map(health -> Map.entry(downstream.name(), health)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .doFinally(signal -> probing.set(false))
+                .subscribe(
+                        results -> snapshot.set(new Snapshot(Map.copyOf(results), Instant.now())),
+                        error -> log.warn("Downstream health probe failed: {}", error.getMessage()));
+    }
+
+    private Mono<Health> probe(Downstream downstream) {
+        String baseUrl = downstream.baseUrl().get();
+        if (baseUrl == null || baseUrl.isEmpty()) {
+            return Mono.just(Health.down()
+                    .withDetail("reason", downstream.label() + " service URL not configured")
+                    .withDetail("url", "not set")
+                    .build());
+        }
+
+        // Call custom /health endpoint
+        return webClient
+                .get()
+                .uri(baseUrl + downstream.path())
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(timeout)
+                .map(response -> toHealth(downstream, baseUrl, response))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    log.warn("{} service health check failed with HTTP {}: {}",
+                            downstream.label(), e.getStatusCode(), e.getMessage());
+                    return Mono.just(Health.down()
+                            .withDetail("url", baseUrl)
+                            .withDetail("error", "HTTP " + e.getStatusCode().value() + ": " + e.getStatusText())
+                            .withDetail("responseBody", e.getResponseBodyAsString())
+                            .build());
+                })
+                .onErrorResume(e -> Mono.just(failed(downstream, baseUrl, e)));
+    }
+
+    private Health toHealth(Downstream downstream, String baseUrl, String response) {
+        try {
+            JsonNode healthData = objectMapper.readTree(response);
+            String status = healthData.get("status").asText();
+            String version = healthData.has("version") ? healthData.get("version").asText() : "unknown";
+            String date = healthData.has("date") ? healthData.get("date").asText() : "unknown";
+            String container = healthData.has("container") ? healthData.get("container").asText() : "unknown";
+
+            Health.Builder builder = "UP".equalsIgnoreCase(status)
+                    ? Health.up().withDetail("status", "Service responding")
+                    : Health.down().withDetail("reason", "Service status: " + status);
+            return builder
+                    .withDetail("url", baseUrl)
+                    .withDetail("version", version)
+                    .withDetail("appDate", date)
+                    .withDetail("container", container)
+                    .build();
+        } catch (Exception e) {
+            return failed(downstream, baseUrl, e);
+        }
+    }
+
+    private static Health failed(Downstream downstream, String baseUrl, Throwable e) {
+        log.warn("{} service health check failed: {}", downstream.label(), e.getMessage());
+        return Health.down()
+                .withDetail("url", baseUrl)
+                .withDetail("error", String.valueOf(e.getMessage()))
+                .withDetail("errorType", e.getClass().getSimpleName())
+                .build();
+    }
+
+    private record Downstream(String name, String label, Supplier<String> baseUrl, String path) {
+    }
+
+    private record Snapshot(Map<String, Health> results, Instant probedAt) {
+
+        boolean isOlderThan(Duration age) {
+            return probedAt.plus(age).isBefore(Instant.now());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.chtrembl.petstoreapp.controller;
 
 import com.chtrembl.petstoreapp.model.ContainerEnvironment;
+import com.chtrembl.petstoreapp.model.Order;
 import com.chtrembl.petstoreapp.model.User;
 import com.chtrembl.petstoreapp.util.ExternalIdUtils;
 import com.microsoft.applicationinsights.telemetry.PageViewTelemetry;
@@ -187,6 +188,19 @@ public abstract class BaseController {
         }
     }
 
+    /**
+     * Update the session cart size from the current order.
+     */
+    protected int updateCartSize(Model model, Order order) {
+        int cartSize = 0;
+        if (order != null && order.getProducts() != null && !order.isComplete()) {
+            cartSize = order.getProducts().size();
+        }
+        sessionUser.setCartCount(cartSize);
+        model.addAttribute(MODEL_CART_SIZE, cartSize);
+        return cartSize;
+    }
+
     /**
      * Retrieve stack trace information for error handling.
      */
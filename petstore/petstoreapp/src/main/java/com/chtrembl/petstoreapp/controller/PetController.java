@@ -116,20 +116,8 @@ public class PetController extends BaseController {
         trackPageView(request, "breeddetails");
 
         try {
-            if (sessionUser.getPets() == null) {
-                log.debug("Pets not loaded in session, loading for category: {}", category);
-                this.petStoreService.getPets(category);
-            }
-
-            if (sessionUser.getPets() == null || sessionUser.getPets().isEmpty()) {
-                throw new IllegalArgumentException("No pets available in session");
-            }
-
-            if (id < 1 || id > sessionUser.getPets().size()) {
-                throw new IllegalArgumentException("Invalid pet ID: " + id);
-            }
-
-            Pet pet = sessionUser.getPets().get(id - 1);
+            Pet pet = this.petStoreService.getPet(id)
+                    .orElseThrow(() -> new IllegalArgumentException("Invalid pet ID: " + id));
 
             log.debug("PetStoreApp /breeddetails requested for {}, routing to breeddetails view...",
                     pet.getName());
@@ -1,8 +1,11 @@
 package com.chtrembl.petstoreapp.controller;
 
+import com.chtrembl.petstoreapp.exception.PetServiceException;
+import com.chtrembl.petstoreapp.exception.ProductServiceException;
 import com.chtrembl.petstoreapp.model.ContainerEnvironment;
 import com.chtrembl.petstoreapp.model.Pet;
 import com.chtrembl.petstoreapp.model.User;
+import com.chtrembl.petstoreapp.service.PageData;
 import com.chtrembl.petstoreapp.service.PetStoreFacadeService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
@@ -68,26 +71,28 @@ public class ProductController extends BaseController {
         trackPageView(request, "products");
 
         try {
-            // Ensure pets are loaded in session
-            if (sessionUser.getPets() == null || sessionUser.getPets().isEmpty()) {
-                log.warn("No pets available in session for products request");
-                throw new IllegalStateException("Pet information not available. Please select a pet breed first.");
+            // Load the pet, its products and the cart concurrently
+            PageData page = this.petStoreService.getPageData((long) id, category, sessionUser.getSessionId());
+
+            Pet pet = page.pet();
+            if (pet == null) {
+                throw page.isAvailable(PageData.Part.PET)
+                        ? new IllegalArgumentException("Invalid pet ID: " + id)
+                        : new PetServiceException("Pet service " + page.failureReason(PageData.Part.PET),
+                                page.failure(PageData.Part.PET));
             }
 
-            // Validate pet ID
-            if (id < 1 || id > sessionUser.getPets().size()) {
-                throw new IllegalArgumentException("Invalid pet ID: " + id);
-            }
-
-            Pet pet = sessionUser.getPets().get(id - 1);
-
             log.debug("PetStoreApp /products requested for category: {}, pet: {}", category, pet.getName());
 
-            // Build product category search term
-            String productCategory = pet.getCategory().getName() + " " + category;
+            if (page.isAvailable(PageData.Part.ORDER)) {
+                updateCartSize(model, page.order());
+            }
 
-            // Retrieve products for the specified category and pet
-            Collection<?> products = this.petStoreService.getProducts(productCategory, pet.getTags());
+            if (!page.isAvailable(PageData.Part.PRODUCTS)) {
+                throw new ProductServiceException("Product service " + page.failureReason(PageData.Part.PRODUCTS),
+                        page.failure(PageData.Part.PRODUCTS));
+            }
+            Collection<?> products = page.products();
 
             model.addAttribute(MODEL_PRODUCTS, products);
 
@@ -1,8 +1,10 @@
 package com.chtrembl.petstoreapp.controller;
 
+import com.chtrembl.petstoreapp.exception.OrderServiceException;
 import com.chtrembl.petstoreapp.model.ContainerEnvironment;
 import com.chtrembl.petstoreapp.model.Order;
 import com.chtrembl.petstoreapp.model.User;
+import com.chtrembl.petstoreapp.service.PageData;
 import com.chtrembl.petstoreapp.service.PetStoreFacadeService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
@@ -25,7 +27,6 @@ import java.util.Map;
 @Slf4j
 public class ShoppingCartController extends BaseController {
 
-    private static final String MODEL_CART_SIZE = "cartSize";
     private static final String MODEL_EMAIL = "email";
     private static final String MODEL_ERROR = "error";
     private static final String MODEL_ORDER = "order";
@@ -57,17 +58,17 @@ public class ShoppingCartController extends BaseController {
         trackPageView(request, "cart");
 
         try {
-            // Retrieve current order for the session
-            Order order = this.petStoreService.retrieveOrder(sessionUser.getSessionId());
+            // Retrieve current order for the session, bounded by the order deadline
+            PageData page = this.petStoreService.getPageData(null, null, sessionUser.getSessionId());
+            if (!page.isAvailable(PageData.Part.ORDER)) {
+                throw new OrderServiceException("Order service " + page.failureReason(PageData.Part.ORDER),
+                        page.failure(PageData.Part.ORDER));
+            }
+            Order order = page.order();
             model.addAttribute(MODEL_ORDER, order);
 
             // Calculate and update cart size
-            int cartSize = 0;
-            if (order != null && order.getProducts() != null && !order.isComplete()) {
-                cartSize = order.getProducts().size();
-            }
-            sessionUser.setCartCount(cartSize);
-            model.addAttribute(MODEL_CART_SIZE, sessionUser.getCartCount());
+            int cartSize = updateCartSize(model, order);
 
             // Add user authentication status
             if (token != null) {
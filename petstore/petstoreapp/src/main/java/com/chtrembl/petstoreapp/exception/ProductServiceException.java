@@ -1,6 +1,10 @@
 package com.chtrembl.petstoreapp.exception;
 
 public class ProductServiceException extends RuntimeException {
+    public ProductServiceException(String message) {
+        super(message);
+    }
+
     public ProductServiceException(String message, Throwable cause) {
         super(message, cause);
     }
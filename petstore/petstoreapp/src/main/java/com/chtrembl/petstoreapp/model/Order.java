@@ -22,6 +22,7 @@ public class Order {
 	private List<Product> products;
 	private Status status;
 	private Boolean complete = false;
+	private Long version;
 
 	/**
 	 * Order Status
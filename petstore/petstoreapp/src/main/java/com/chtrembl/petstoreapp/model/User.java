@@ -9,7 +9,6 @@ import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -24,25 +23,21 @@ public class User {
 	private String name = "Guest";
 	private String sessionId;
 	private String email;
-	private List<Pet> pets;
-	private List<Product> products;
 	private int cartCount;
 	private boolean initialTelemetryRecorded;
 
+	/**
+	 * Last order received from the order service, revalidated with its ETag instead of
+	 * being fetched again.
+	 */
+	private volatile SeenOrder lastSeenOrder;
+
 	@Autowired(required = false)
 	private transient PetStoreTelemetryClient telemetryClient;
 
 	@Autowired
 	private ContainerEnvironment containerEnvironment;
 
-	public synchronized void setPets(List<Pet> pets) {
-		this.pets = pets;
-	}
-
-	public synchronized void setProducts(List<Product> products) {
-		this.products = products;
-	}
-
 	public synchronized String getName() {
 		return this.name != null ? this.name : "Guest";
 	}
@@ -59,4 +54,7 @@ public class User {
 		properties.put("containerHostName", this.containerEnvironment.getContainerHostName());
 		return properties;
 	}
-}
\ No newline at end of file
+
+	public record SeenOrder(String orderId, String eTag, Order order) {
+	}
+}
@@ -0,0 +1,185 @@
+package com.chtrembl.petstoreapp.service;
+
+import com.chtrembl.petstoreapp.client.PetServiceClient;
+import com.chtrembl.petstoreapp.client.ProductServiceClient;
+import com.chtrembl.petstoreapp.model.Pet;
+import com.chtrembl.petstoreapp.model.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.chtrembl.petstoreapp.model.Status.AVAILABLE;
+
+/**
+ * Application-wide cache of the available pet and product catalogs.
+ * <p>
+ * One fetch serves every session: the first request after startup loads a catalog, after
+ * that it is refreshed ahead of time on a schedule and requests only read the current
+ * snapshot. Requests arriving while the first load is in flight wait for that load instead
+ * of fetching on their own. A failed refresh keeps serving the previous snapshot, and a
+ * catalog that could not be loaded yet is retried by the next scheduled refresh.
+ */
+@Service
+@Slf4j
+public class CatalogCache {
+
+    private final PetServiceClient petServiceClient;
+    private final ProductServiceClient productServiceClient;
+
+    private final Catalog<Pet> pets;
+    private final Catalog<Product> products;
+
+    public CatalogCache(PetServiceClient petServiceClient, ProductServiceClient productServiceClient) {
+        this.petServiceClient = petServiceClient;
+        this.productServiceClient = productServiceClient;
+        this.pets = new Catalog<>("pets", this::fetchPets, Pet::getId);
+        this.products = new Catalog<>("products", this::fetchProducts, Product::getId);
+    }
+
+    public List<Pet> getPets() {
+        return pets.snapshot().items();
+    }
+
+    public Optional<Pet> getPet(long id) {
+        return Optional.ofNullable(pets.snapshot().byId().get(id));
+    }
+
+    public List<Product> getProducts() {
+        return products.snapshot().items();
+    }
+
+    /**
+     * @return true once a product snapshot has been loaded, false while every attempt so far failed
+     */
+    public boolean hasProducts() {
+        return products.loaded();
+    }
+
+    @Scheduled(initialDelayString = "${petstore.catalog.refresh-interval:PT1M}",
+            fixedDelayString = "${petstore.catalog.refresh-interval:PT1M}")
+    public void refresh() {
+        pets.refreshQuietly();
+        products.refreshQuietly();
+    }
+
+    private List<Pet> fetchPets() {
+        List<Pet> fetched = petServiceClient.getPetsByStatus(AVAILABLE.getValue());
+        log.info("Loaded {} pets into the shared catalog cache", fetched.size());
+        return fetched;
+    }
+
+    private List<Product> fetchProducts() {
+        List<Product> fetched = productServiceClient.getProductsByStatus(AVAILABLE.getValue());
+        log.info("Loaded {} products into the shared catalog cache", fetched.size());
+        return fetched;
+    }
+
+    /**
+     * Current snapshot of one catalog, and the first load of it shared by everyone asking
+     * while it runs.
+     */
+    private static final class Catalog<T> {
+
+        private final String name;
+        private final Supplier<List<T>> fetcher;
+        private final Function<T, Long> idOf;
+        private final AtomicReference<Snapshot<T>> current = new AtomicReference<>();
+        private final AtomicReference<CompletableFuture<Snapshot<T>>> loading = new AtomicReference<>();
+
+        Catalog(String name, Supplier<List<T>> fetcher, Function<T, Long> idOf) {
+            this.name = name;
+            this.fetcher = fetcher;
+            this.idOf = idOf;
+        }
+
+        boolean loaded() {
+            return current.get() != null;
+        }
+
+        Snapshot<T> snapshot() {
+            Snapshot<T> snapshot = current.get();
+            return snapshot != null ? snapshot : load();
+        }
+
+        /**
+         * Loads the catalog on the calling thread, or waits for the load another thread started.
+         * A failed load is rethrown to everyone waiting for it, and the next call tries again.
+         */
+        private Snapshot<T> load() {
+            CompletableFuture<Snapshot<T>> own = new CompletableFuture<>();
+            CompletableFuture<Snapshot<T>> inFlight = loading.compareAndExchange(null, own);
+            if (inFlight != null) {
+                return await(inFlight);
+            }
+            try {
+                // a load that finished between our read and taking over has already set it
+                Snapshot<T> snapshot = current.get();
+                if (snapshot == null) {
+                    current.compareAndSet(null, Snapshot.of(fetcher.get(), idOf));
+                    snapshot = current.get();
+                }
+                own.complete(snapshot);
+                return snapshot;
+            } catch (RuntimeException | Error e) {
+                own.completeExceptionally(e);
+                throw e;
+            } finally {
+                loading.set(null);
+            }
+        }
+
+        void refreshQuietly() {
+            Snapshot<T> previous = current.get();
+            try {
+                if (previous == null) {
+                    load();
+                } else {
+                    current.set(Snapshot.of(fetcher.get(), idOf));
+                }
+            } catch (Exception e) {
+                if (previous == null) {
+                    log.warn("Could not load {} catalog, retrying on the next refresh: {}", name, e.getMessage());
+                } else {
+                    log.warn("Could not refresh {} catalog, keeping snapshot from {}: {}",
+                            name, previous.fetchedAt(), e.getMessage());
+                }
+            }
+        }
+
+        private static <T> Snapshot<T> await(CompletableFuture<Snapshot<T>> inFlight) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private record Snapshot<T>(List<T> items, Map<Long, T> byId, Instant fetchedAt) {
+
+        static <T> Snapshot<T> of(List<T> items, Function<T, Long> idOf) {
+            Map<Long, T> byId = new HashMap<>();
+            for (T item : items) {
+                Long id = idOf.apply(item);
+                if (id != null) {
+                    byId.putIfAbsent(id, item);
+                }
+            }
+            return new Snapshot<>(List.copyOf(items), Map.copyOf(byId), Instant.now());
+        }
+    }
+}
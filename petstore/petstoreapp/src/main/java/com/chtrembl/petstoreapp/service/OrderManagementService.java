@@ -1,24 +1,28 @@
 package com.chtrembl.petstoreapp.service;
 
 import com.chtrembl.petstoreapp.client.OrderServiceClient;
-import com.chtrembl.petstoreapp.client.ReserveOrderClient;
 import com.chtrembl.petstoreapp.exception.OrderServiceException;
 import com.chtrembl.petstoreapp.model.Order;
 import com.chtrembl.petstoreapp.model.Product;
 import com.chtrembl.petstoreapp.model.User;
+import com.chtrembl.petstoreapp.telemetry.PetStoreTelemetryClient;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import feign.FeignException;
+import feign.Response;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.http.ResponseEntity;
 
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import static com.chtrembl.petstoreapp.config.Constants.COMPLETE_ORDER;
@@ -32,11 +36,18 @@ import static com.chtrembl.petstoreapp.config.Constants.QUANTITY;
 @Slf4j
 public class OrderManagementService {
 
+    private static final ObjectMapper ORDER_MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+            .configure(SerializationFeature.FAIL_ON_SELF_REFERENCES, false);
+    private static final ObjectMapper RESERVATION_MAPPER = new ObjectMapper();
+    private static final ObjectReader ORDER_READER = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .readerFor(Order.class);
+
     private final User sessionUser;
     private final OrderServiceClient orderServiceClient;
-    private final ReserveOrderClient reserveOrderClient;
-    @Value("${petstore.service.reserveOrder.code}")
-    private String reserveFunctionCode;
+    private final ReservationOutbox reservationOutbox;
 
     public void updateOrder(long productId, int quantity, boolean completeOrder) {
         MDC.put(OPERATION, "updateOrder");
@@ -56,9 +67,8 @@ public class OrderManagementService {
             Order resultOrder = orderServiceClient.createOrUpdateOrder(orderJSON);
             log.info("Successfully updated order: {}", resultOrder);
 
-            log.info("Call Azure Function to reserve/upload order JSON");
-            String sessionId = this.sessionUser.getSessionId();
-            callReserveOrderFunction(resultOrder, sessionId);
+            log.info("Queueing order reservation for upload by the Azure Function");
+            reserveOrder(resultOrder, this.sessionUser.getSessionId());
         } catch (FeignException fe) {
             log.error("Unable to update order via Feign client: HTTP {} - {}", fe.status(), fe.getMessage(), fe);
             this.sessionUser.getTelemetryClient().trackException(fe);
@@ -72,52 +82,65 @@ public class OrderManagementService {
         }
     }
 
-    @Async
-    protected void callReserveOrderFunction(Order order, String sessionId) {
+    /**
+     * Hands the order to the reservation outbox, which uploads it in the background.
+     */
+    private void reserveOrder(Order order, String sessionId) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            String orderJson = mapper.writeValueAsString(order);
-            ResponseEntity<String> response = reserveOrderClient.reserveOrder(orderJson, sessionId, reserveFunctionCode);
-            if (response.getStatusCode().is2xxSuccessful()) {
-                log.info("✅ Order uploaded to Blob via Azure Function: {}", response.getBody());
-            } else {
-                log.warn("⚠️ Azure Function returned status {}: {}", response.getStatusCode(), response.getBody());
-            }
-        } catch (FeignException fe) {
-            log.error("Unable to update order via Feign client: HTTP {} - {}", fe.status(), fe.getMessage(), fe);
-            this.sessionUser.getTelemetryClient().trackException(fe);
-            throw new OrderServiceException("Unable to update order via order service", fe);
+            reservationOutbox.enqueue(sessionId, RESERVATION_MAPPER.writeValueAsString(order));
         } catch (Exception e) {
-            log.error("Unexpected error updating order", e);
+            // the order itself was already updated, so a failed hand-off must not fail the request
+            log.error("Unable to queue order reservation for session {}", sessionId, e);
             this.sessionUser.getTelemetryClient().trackException(e);
-            throw new OrderServiceException("Unable to update order via order service", e);
         }
     }
 
     public Order retrieveOrder(String orderId) {
-        MDC.put(OPERATION, "retrieveOrder");
-        MDC.put(ORDER_ID, orderId);
+        OrderLookup lookup = lookupOrder(prepareRetrieval(orderId));
+        completeRetrieval(lookup);
+        return lookup.order();
+    }
 
+    /**
+     * Reads what {@link #lookupOrder} needs from the session; runs on the request thread.
+     */
+    public OrderRetrieval prepareRetrieval(String orderId) {
         this.sessionUser.getTelemetryClient()
                 .trackEvent(String.format(
                         "PetStoreApp user %s is requesting to retrieve an order from the PetStoreOrderService",
                         this.sessionUser.getName()), this.sessionUser.getCustomEventProperties(), null);
 
+        User.SeenOrder seen = this.sessionUser.getLastSeenOrder();
+        if (seen != null && !seen.orderId().equals(orderId)) {
+            seen = null;
+        }
+        return new OrderRetrieval(orderId, seen, this.sessionUser.getTelemetryClient());
+    }
+
+    /**
+     * Fetches the order from the values in {@code retrieval} alone, without touching the
+     * session, so it may run on another thread and finish after the request has completed.
+     */
+    public OrderLookup lookupOrder(OrderRetrieval retrieval) {
+        String orderId = retrieval.orderId();
+        MDC.put(OPERATION, "retrieveOrder");
+        MDC.put(ORDER_ID, orderId);
+
         try {
-            Order order = orderServiceClient.getOrder(orderId);
-            log.info("Successfully retrieved order: {}", order);
-            return order;
+            OrderLookup lookup = fetchOrder(retrieval);
+            log.info("Successfully retrieved order: {}", lookup.order());
+            return lookup;
 
         } catch (FeignException.NotFound e) {
             log.debug("Order not found: {}", orderId);
-            return null;
+            return new OrderLookup(null, null);
         } catch (FeignException fe) {
             log.error("Unable to retrieve order via Feign client: HTTP {} - {}", fe.status(), fe.getMessage(), fe);
-            this.sessionUser.getTelemetryClient().trackException(fe);
+            retrieval.telemetryClient().trackException(fe);
             throw new OrderServiceException("Unable to retrieve order from order service", fe);
         } catch (Exception e) {
             log.error("Unexpected error retrieving order: {}", orderId, e);
-            this.sessionUser.getTelemetryClient().trackException(e);
+            retrieval.telemetryClient().trackException(e);
             throw new OrderServiceException("Unable to retrieve order from order service", e);
         } finally {
             MDC.remove(OPERATION);
@@ -125,6 +148,48 @@ public class OrderManagementService {
         }
     }
 
+    /**
+     * Keeps the copy the session revalidates next time; runs on the request thread.
+     */
+    public void completeRetrieval(OrderLookup lookup) {
+        this.sessionUser.setLastSeenOrder(lookup.seen());
+    }
+
+    /**
+     * Asks the order service for the order, conditionally if this session has already seen it.
+     * A 304 answers with the session's copy, which callers only read.
+     */
+    private OrderLookup fetchOrder(OrderRetrieval retrieval) throws Exception {
+        String orderId = retrieval.orderId();
+        User.SeenOrder seen = retrieval.seen();
+
+        try (Response response = orderServiceClient.getOrder(orderId, seen != null ? seen.eTag() : null)) {
+            int status = response.status();
+            if (status == HttpStatus.NOT_MODIFIED.value() && seen != null) {
+                log.debug("Order {} not modified, using the session copy", orderId);
+                return new OrderLookup(seen.order(), seen);
+            }
+            if (status == HttpStatus.NOT_FOUND.value()) {
+                return new OrderLookup(null, null);
+            }
+            if (status < 200 || status >= 300 || response.body() == null) {
+                throw FeignException.errorStatus("OrderServiceClient#getOrder", response);
+            }
+
+            Order order;
+            try (InputStream body = response.body().asInputStream()) {
+                order = ORDER_READER.readValue(body);
+            }
+            String eTag = firstHeader(response, HttpHeaders.ETAG);
+            return new OrderLookup(order, eTag != null ? new User.SeenOrder(orderId, eTag, order) : null);
+        }
+    }
+
+    private static String firstHeader(Response response, String name) {
+        Collection<String> values = response.headers().get(name);
+        return values == null || values.isEmpty() ? null : values.iterator().next();
+    }
+
     private Order buildOrderUpdate(long productId, int quantity, boolean completeOrder) {
         Order updatedOrder = new Order();
         updatedOrder.setId(this.sessionUser.getSessionId());
@@ -154,11 +219,7 @@ public class OrderManagementService {
     }
 
     private String serializeOrder(Order order) throws Exception {
-        return new ObjectMapper()
-                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
-                .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
-                .configure(SerializationFeature.FAIL_ON_SELF_REFERENCES, false)
-                .writeValueAsString(order);
+        return ORDER_MAPPER.writeValueAsString(order);
     }
 
     private void cleanupMDC() {
@@ -167,4 +228,16 @@ public class OrderManagementService {
         MDC.remove(QUANTITY);
         MDC.remove(COMPLETE_ORDER);
     }
+
+    /**
+     * What an order lookup needs, read from the session on the request thread.
+     */
+    public record OrderRetrieval(String orderId, User.SeenOrder seen, PetStoreTelemetryClient telemetryClient) {
+    }
+
+    /**
+     * The order found, or null, and the copy the session should keep for revalidation.
+     */
+    public record OrderLookup(Order order, User.SeenOrder seen) {
+    }
 }
@@ -0,0 +1,49 @@
+package com.chtrembl.petstoreapp.service;
+
+import com.chtrembl.petstoreapp.model.Order;
+import com.chtrembl.petstoreapp.model.Pet;
+import com.chtrembl.petstoreapp.model.Product;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Data for one storefront page, loaded concurrently by {@link PetStoreFacadeService#getPageData}.
+ * <p>
+ * A part that was not requested, or that could not be loaded, is null; the latter are also
+ * listed in {@code failures} with what went wrong, so pages can render what they have and
+ * report the real reason for the rest.
+ */
+public record PageData(Pet pet, Collection<Product> products, Order order, Map<Part, Throwable> failures) {
+
+    public enum Part {
+        PET, PRODUCTS, ORDER
+    }
+
+    public boolean isAvailable(Part part) {
+        return !failures.containsKey(part);
+    }
+
+    /**
+     * @return why the part could not be loaded, or null if it is available
+     */
+    public Throwable failure(Part part) {
+        return failures.get(part);
+    }
+
+    /**
+     * @return a short reason for a message such as "Order service did not respond in time",
+     * or null if the part is available
+     */
+    public String failureReason(Part part) {
+        Throwable failure = failures.get(part);
+        if (failure == null) {
+            return null;
+        }
+        if (failure instanceof TimeoutException) {
+            return "did not respond in time";
+        }
+        return "failed: " + (failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName());
+    }
+}
@@ -1,6 +1,5 @@
 package com.chtrembl.petstoreapp.service;
 
-import com.chtrembl.petstoreapp.client.PetServiceClient;
 import com.chtrembl.petstoreapp.exception.PetServiceException;
 import com.chtrembl.petstoreapp.model.Category;
 import com.chtrembl.petstoreapp.model.ContainerEnvironment;
@@ -15,12 +14,12 @@ import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import static com.chtrembl.petstoreapp.config.Constants.CATEGORY;
 import static com.chtrembl.petstoreapp.config.Constants.OPERATION;
 import static com.chtrembl.petstoreapp.config.Constants.REQUEST_ID;
 import static com.chtrembl.petstoreapp.config.Constants.TRACE_ID;
-import static com.chtrembl.petstoreapp.model.Status.AVAILABLE;
 
 @Service
 @RequiredArgsConstructor
@@ -29,7 +28,7 @@ public class PetManagementService {
 
     private final User sessionUser;
     private final ContainerEnvironment containerEnvironment;
-    private final PetServiceClient petServiceClient;
+    private final CatalogCache catalogCache;
 
     public Collection<Pet> getPetsByCategory(String category) {
         List<Pet> pets;
@@ -49,10 +48,7 @@ public class PetManagementService {
                             this.sessionUser.getName()),
                     this.sessionUser.getCustomEventProperties(), null);
 
-            pets = petServiceClient.getPetsByStatus(AVAILABLE.getValue());
-            this.sessionUser.setPets(pets);
-
-            pets = pets.stream()
+            pets = catalogCache.getPets().stream()
                     .filter(pet -> category.equals(pet.getCategory().getName()))
                     .toList();
 
@@ -84,6 +80,10 @@ public class PetManagementService {
         }
     }
 
+    public Optional<Pet> getPetById(long id) {
+        return catalogCache.getPet(id);
+    }
+
     private Collection<Pet> createErrorPetCollection(Exception e) {
         List<Pet> pets = new ArrayList<>();
         Pet errorPet = new Pet();
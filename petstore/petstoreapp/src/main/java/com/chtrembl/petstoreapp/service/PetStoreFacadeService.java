@@ -1,15 +1,34 @@
 package com.chtrembl.petstoreapp.service;
 
+import com.chtrembl.petstoreapp.config.RequestContextSnapshot;
 import com.chtrembl.petstoreapp.model.Order;
 import com.chtrembl.petstoreapp.model.Pet;
 import com.chtrembl.petstoreapp.model.Product;
 import com.chtrembl.petstoreapp.model.Tag;
+import com.chtrembl.petstoreapp.model.User;
+import com.chtrembl.petstoreapp.model.WebRequest;
+import com.chtrembl.petstoreapp.service.OrderManagementService.OrderLookup;
+import com.chtrembl.petstoreapp.service.OrderManagementService.OrderRetrieval;
+import com.chtrembl.petstoreapp.service.PageData.Part;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -19,15 +38,82 @@ public class PetStoreFacadeService {
     private final PetManagementService petManagementService;
     private final ProductManagementService productManagementService;
     private final OrderManagementService orderManagementService;
+    private final WebRequest webRequest;
+    private final User sessionUser;
+
+    private final ExecutorService pageExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("page-fanout-", 0).factory());
+
+    @Value("${petstore.page.deadline.pet:PT2S}")
+    private Duration petDeadline;
+
+    @Value("${petstore.page.deadline.product:PT2S}")
+    private Duration productDeadline;
+
+    @Value("${petstore.page.deadline.order:PT2S}")
+    private Duration orderDeadline;
 
     public Collection<Pet> getPets(String category) {
         return petManagementService.getPetsByCategory(category);
     }
 
+    public Optional<Pet> getPet(long id) {
+        return petManagementService.getPetById(id);
+    }
+
     public Collection<Product> getProducts(String category, List<Tag> tags) {
         return productManagementService.getProductsByCategory(category, tags);
     }
 
+    /**
+     * Loads the pet, the product catalog and the order concurrently, each bounded by its own
+     * deadline, so the page waits for the slowest call rather than for the sum of them.
+     * A null argument skips that part. Products are filtered for the pet's category and
+     * {@code productType} once both the pet and the catalog have arrived.
+     * <p>
+     * Everything the calls need from the request and the session is read here, on the
+     * request thread, and the session is only updated here once the results are in.
+     */
+    public PageData getPageData(Long petId, String productType, String orderId) {
+        RequestContextSnapshot request = RequestContextSnapshot.capture(webRequest, sessionUser);
+        OrderRetrieval retrieval = orderId != null ? orderManagementService.prepareRetrieval(orderId) : null;
+
+        CompletableFuture<Optional<Pet>> pet = petId != null
+                ? fanOut(() -> getPet(petId), petDeadline, request)
+                : CompletableFuture.completedFuture(Optional.empty());
+        CompletableFuture<Boolean> productCatalog = productType != null
+                ? fanOut(productManagementService::loadCatalog, productDeadline, request)
+                : CompletableFuture.completedFuture(false);
+        CompletableFuture<OrderLookup> order = retrieval != null
+                ? fanOut(() -> orderManagementService.lookupOrder(retrieval), orderDeadline, request)
+                : CompletableFuture.completedFuture(null);
+
+        CompletableFuture.allOf(pet, productCatalog, order)
+                .exceptionally(e -> null)
+                .join();
+
+        Map<Part, Throwable> failures = new EnumMap<>(Part.class);
+        Pet resolvedPet = resultOf(Part.PET, pet, failures).flatMap(p -> p).orElse(null);
+        boolean catalogLoaded = resultOf(Part.PRODUCTS, productCatalog, failures).orElse(false);
+        if (productType != null && !catalogLoaded) {
+            failures.putIfAbsent(Part.PRODUCTS, new IllegalStateException("no product catalog could be loaded yet"));
+        }
+        // a lookup that missed its deadline never reaches the session
+        OrderLookup lookup = resultOf(Part.ORDER, order, failures).orElse(null);
+        Order resolvedOrder = null;
+        if (lookup != null) {
+            orderManagementService.completeRetrieval(lookup);
+            resolvedOrder = lookup.order();
+        }
+
+        Collection<Product> products = null;
+        if (resolvedPet != null && catalogLoaded) {
+            products = getProducts(resolvedPet.getCategory().getName() + " " + productType, resolvedPet.getTags());
+        }
+
+        return new PageData(resolvedPet, products, resolvedOrder, failures);
+    }
+
     public void updateOrder(long productId, int quantity, boolean completeOrder) {
         orderManagementService.updateOrder(productId, quantity, completeOrder);
     }
@@ -35,4 +121,40 @@ public class PetStoreFacadeService {
     public Order retrieveOrder(String orderId) {
         return orderManagementService.retrieveOrder(orderId);
     }
-}
\ No newline at end of file
+
+    @PreDestroy
+    public void shutdown() {
+        pageExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs {@code call} on its own virtual thread with the caller's MDC and the request values
+     * captured in {@code request}. It gets no access to the request or session themselves: a
+     * call that misses its deadline keeps running, so a slow catalog fetch still lands in the
+     * shared cache, and may finish after the container has recycled the request.
+     */
+    private <T> CompletableFuture<T> fanOut(Supplier<T> call, Duration deadline, RequestContextSnapshot request) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        return CompletableFuture.supplyAsync(() -> {
+            if (context != null) {
+                MDC.setContextMap(context);
+            }
+            try {
+                return request != null ? request.callWith(call) : call.get();
+            } finally {
+                MDC.clear();
+            }
+        }, pageExecutor).orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static <T> Optional<T> resultOf(Part part, CompletableFuture<T> future, Map<Part, Throwable> failures) {
+        try {
+            return Optional.ofNullable(future.join());
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.warn("{} unavailable for page, rendering without it: {}", part, cause.toString());
+            failures.put(part, cause);
+            return Optional.empty();
+        }
+    }
+}
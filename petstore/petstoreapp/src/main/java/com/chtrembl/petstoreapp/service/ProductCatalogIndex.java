@@ -0,0 +1,71 @@
+package com.chtrembl.petstoreapp.service;
+
+import com.chtrembl.petstoreapp.model.Product;
+import com.chtrembl.petstoreapp.model.Tag;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Products pre-grouped by category name and tag name.
+ * <p>
+ * Built once per catalog snapshot; a filtered product page is a single lookup that returns
+ * a shared immutable list. Tags are matched by exact name rather than by searching the
+ * tag list's string form.
+ */
+final class ProductCatalogIndex {
+
+    private final List<Product> source;
+    private final Map<String, Map<String, List<Product>>> byCategoryAndTag;
+
+    private ProductCatalogIndex(List<Product> source) {
+        this.source = source;
+
+        Map<String, Map<String, List<Product>>> groups = new HashMap<>();
+        for (Product product : source) {
+            if (product.getCategory() == null || product.getCategory().getName() == null
+                    || product.getTags() == null) {
+                continue;
+            }
+            Map<String, List<Product>> byTag =
+                    groups.computeIfAbsent(product.getCategory().getName(), c -> new HashMap<>());
+            for (Tag tag : product.getTags()) {
+                if (tag != null && tag.getName() != null) {
+                    List<Product> tagged = byTag.computeIfAbsent(tag.getName(), t -> new ArrayList<>());
+                    if (tagged.isEmpty() || tagged.getLast() != product) {
+                        tagged.add(product);
+                    }
+                }
+            }
+        }
+
+        Map<String, Map<String, List<Product>>> frozen = new HashMap<>();
+        groups.forEach((category, byTag) -> {
+            Map<String, List<Product>> frozenByTag = new HashMap<>();
+            byTag.forEach((tag, products) -> frozenByTag.put(tag, List.copyOf(products)));
+            frozen.put(category, Map.copyOf(frozenByTag));
+        });
+        this.byCategoryAndTag = Map.copyOf(frozen);
+    }
+
+    static ProductCatalogIndex of(List<Product> products) {
+        return new ProductCatalogIndex(products);
+    }
+
+    /**
+     * @return true if this index was built from exactly the given list instance
+     */
+    boolean isBuiltFrom(List<Product> products) {
+        return source == products;
+    }
+
+    List<Product> find(String category, String tag) {
+        Map<String, List<Product>> byTag = byCategoryAndTag.get(category);
+        if (byTag == null) {
+            return List.of();
+        }
+        return byTag.getOrDefault(tag, List.of());
+    }
+}
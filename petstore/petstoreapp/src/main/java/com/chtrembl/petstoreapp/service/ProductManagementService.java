@@ -1,6 +1,5 @@
 package com.chtrembl.petstoreapp.service;
 
-import com.chtrembl.petstoreapp.client.ProductServiceClient;
 import com.chtrembl.petstoreapp.exception.ProductServiceException;
 import com.chtrembl.petstoreapp.model.ContainerEnvironment;
 import com.chtrembl.petstoreapp.model.Product;
@@ -19,16 +18,20 @@ import static com.chtrembl.petstoreapp.config.Constants.CATEGORY;
 import static com.chtrembl.petstoreapp.config.Constants.OPERATION;
 import static com.chtrembl.petstoreapp.config.Constants.REQUEST_ID;
 import static com.chtrembl.petstoreapp.config.Constants.TRACE_ID;
-import static com.chtrembl.petstoreapp.model.Status.AVAILABLE;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductManagementService {
 
+    private static final String LARGE = "large";
+    private static final String SMALL = "small";
+
     private final User sessionUser;
     private final ContainerEnvironment containerEnvironment;
-    private final ProductServiceClient productServiceClient;
+    private final CatalogCache catalogCache;
+
+    private volatile ProductCatalogIndex index;
 
     public Collection<Product> getProductsByCategory(String category, List<Tag> tags) {
         List<Product> products;
@@ -48,20 +51,8 @@ public class ProductManagementService {
                             this.sessionUser.getName()),
                     this.sessionUser.getCustomEventProperties(), null);
 
-            products = productServiceClient.getProductsByStatus(AVAILABLE.getValue());
-            this.sessionUser.setProducts(products);
-
-            if (tags.stream().anyMatch(t -> t.getName().equals("large"))) {
-                products = products.stream()
-                        .filter(product -> category.equals(product.getCategory().getName())
-                                && product.getTags().toString().contains("large"))
-                        .toList();
-            } else {
-                products = products.stream()
-                        .filter(product -> category.equals(product.getCategory().getName())
-                                && product.getTags().toString().contains("small"))
-                        .toList();
-            }
+            String size = tags != null && tags.stream().anyMatch(t -> LARGE.equals(t.getName())) ? LARGE : SMALL;
+            products = productIndex().find(category, size);
 
             log.info("Successfully retrieved {} products for category {} with tags {} [RequestID: {}, TraceID: {}]",
                     products.size(), category, tags, requestId, traceId);
@@ -86,4 +77,29 @@ public class ProductManagementService {
             MDC.remove(CATEGORY);
         }
     }
+
+    /**
+     * Makes sure the product catalog and its index are loaded, fetching them on first use.
+     *
+     * @return true if a catalog snapshot is available, false if none could be loaded yet
+     */
+    public boolean loadCatalog() {
+        try {
+            productIndex();
+        } catch (FeignException fe) {
+            log.warn("Product catalog could not be loaded (HTTP {}): {}", fe.status(), fe.getMessage());
+        }
+        return catalogCache.hasProducts();
+    }
+
+    private ProductCatalogIndex productIndex() {
+        List<Product> products = catalogCache.getProducts();
+        ProductCatalogIndex current = index;
+        if (current == null || !current.isBuiltFrom(products)) {
+            current = ProductCatalogIndex.of(products);
+            index = current;
+            log.debug("Rebuilt product category/tag index for {} products", products.size());
+        }
+        return current;
+    }
 }
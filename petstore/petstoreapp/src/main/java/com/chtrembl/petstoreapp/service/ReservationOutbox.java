@@ -0,0 +1,421 @@
+package com.chtrembl.petstoreapp.service;
+
+import com.chtrembl.petstoreapp.client.ReserveOrderClient;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import feign.FeignException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Durable hand-off of order reservations to the order items reserver function.
+ * <p>
+ * {@link #enqueue} appends the reservation to a journal file and returns; a background
+ * dispatcher sends due reservations in one bulk call per batch and retries failures with
+ * exponential backoff. Reservations the function rejects as invalid are not retried but moved
+ * to a dead-letter file next to the journal. The function keeps one blob per session, so only
+ * the newest reservation of a session is kept pending. Pending reservations are replayed from
+ * the journal on startup, and the journal is compacted down to them when it grows.
+ */
+@Component
+@Slf4j
+public class ReservationOutbox {
+
+    private static final String JOURNAL_FILE = "reservations.journal";
+    private static final String PUT = "PUT";
+    private static final String ACK = "ACK";
+    private static final String DEAD_LETTER_FILE = "reservations.dead-letter";
+
+    private final ReserveOrderClient reserveOrderClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reservation-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${petstore.service.reserveOrder.code}")
+    private String reserveFunctionCode;
+
+    @Value("${petstore.reservation.outbox.dir:${java.io.tmpdir}/petstore-reservation-outbox}")
+    private Path directory;
+
+    @Value("${petstore.reservation.outbox.dispatch-interval:PT1S}")
+    private Duration dispatchInterval;
+
+    @Value("${petstore.reservation.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${petstore.reservation.outbox.initial-backoff:PT1S}")
+    private Duration initialBackoff;
+
+    @Value("${petstore.reservation.outbox.max-backoff:PT5M}")
+    private Duration maxBackoff;
+
+    @Value("${petstore.reservation.outbox.compact-threshold:10000}")
+    private int compactThreshold;
+
+    // Guarded by lock
+    private BufferedWriter journal;
+    private long sequence;
+    private int journalEntries;
+
+    public ReservationOutbox(ReserveOrderClient reserveOrderClient) {
+        this.reserveOrderClient = reserveOrderClient;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(directory);
+        lock.lock();
+        try {
+            replay();
+            compact();
+        } finally {
+            lock.unlock();
+        }
+        dispatcher.scheduleWithFixedDelay(this::dispatch,
+                dispatchInterval.toMillis(), dispatchInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Reservation outbox started at {} with {} pending reservations", directory, pending.size());
+    }
+
+    /**
+     * Records the reservation durably and returns without calling the function.
+     */
+    public void enqueue(String sessionId, String orderJson) {
+        lock.lock();
+        try {
+            long seq = ++sequence;
+            append(new JournalEntry(PUT, seq, sessionId, orderJson));
+            Pending replaced = pending.put(sessionId, new Pending(seq, sessionId, orderJson));
+            if (replaced != null) {
+                log.debug("Reservation for session {} superseded before dispatch", sessionId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        dispatcher.shutdown();
+        try {
+            dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } catch (IOException e) {
+            log.warn("Could not close reservation journal: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        try {
+            List<Pending> batch = dueBatch();
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+            lock.lock();
+            try {
+                if (journalEntries > compactThreshold) {
+                    compact();
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            // never let an exception cancel the scheduled dispatch
+            log.error("Reservation outbox dispatch failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private List<Pending> dueBatch() {
+        long now = System.currentTimeMillis();
+        List<Pending> batch = new ArrayList<>(batchSize);
+        lock.lock();
+        try {
+            for (Pending reservation : pending.values()) {
+                if (batch.size() == batchSize) {
+                    break;
+                }
+                if (reservation.nextAttemptAt <= now) {
+                    batch.add(reservation);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return batch;
+    }
+
+    /**
+     * Sends the batch as one bulk call. The function answers with the status of every order
+     * by its position in the request; an order it did not report is retried. A failure of the
+     * call itself says nothing about the orders, whatever its status, so the whole batch is
+     * retried.
+     */
+    private void send(List<Pending> batch) {
+        Outcome[] outcomes = new Outcome[batch.size()];
+        ArrayNode body = objectMapper.createArrayNode();
+        List<Integer> positions = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Pending reservation = batch.get(i);
+            try {
+                ObjectNode order = (ObjectNode) objectMapper.readTree(reservation.orderJson);
+                order.put("sessionId", reservation.sessionId);
+                body.add(order);
+                positions.add(i);
+            } catch (Exception e) {
+                outcomes[i] = Outcome.ofOrder(400, "Unreadable order: " + e.getMessage());
+            }
+        }
+
+        if (!positions.isEmpty()) {
+            try {
+                ResponseEntity<String> response = reserveOrderClient.reserveOrders(body.toString(), reserveFunctionCode);
+                BulkStatus[] statuses = objectMapper.readValue(response.getBody(), BulkStatus[].class);
+                for (BulkStatus status : statuses) {
+                    if (status.index() >= 0 && status.index() < positions.size()) {
+                        outcomes[positions.get(status.index())] = Outcome.ofOrder(status.status(), status.error());
+                    }
+                }
+            } catch (FeignException e) {
+                for (int position : positions) {
+                    outcomes[position] = Outcome.ofCall(e.status(), e.getMessage());
+                }
+            } catch (Exception e) {
+                for (int position : positions) {
+                    outcomes[position] = Outcome.ofCall(-1, e.getMessage());
+                }
+            }
+        }
+
+        lock.lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                settle(batch.get(i), outcomes[i] != null ? outcomes[i] : Outcome.ofCall(-1, "not reported"));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caller holds the lock.
+     */
+    private void settle(Pending reservation, Outcome outcome) {
+        if (outcome.status() >= 200 && outcome.status() < 300) {
+            log.info("Order reservation for session {} delivered", reservation.sessionId);
+        } else if (outcome.ofOrder() && isPermanent(outcome.status())) {
+            // retrying cannot fix a rejected order, so it leaves the journal for the dead-letter file
+            log.error("Order reservation for session {} rejected with status {}, moved to {}: {}",
+                    reservation.sessionId, outcome.status(), DEAD_LETTER_FILE, outcome.error());
+            deadLetter(reservation, outcome);
+        } else {
+            reservation.attempts++;
+            reservation.nextAttemptAt = System.currentTimeMillis() + backoff(reservation.attempts);
+            log.warn("Order reservation for session {} failed (attempt {}, status {}): {}",
+                    reservation.sessionId, reservation.attempts, outcome.status(), outcome.error());
+            return;
+        }
+
+        // only remove it if it was not superseded while in flight
+        if (pending.get(reservation.sessionId) == reservation) {
+            pending.remove(reservation.sessionId);
+        }
+        append(new JournalEntry(ACK, reservation.seq, reservation.sessionId, null));
+    }
+
+    /**
+     * A client error reported for one order means the order itself was rejected. Authentication failures and
+     * throttling are client errors too, but they come from configuration or load and go
+     * away on their own, so those are retried like server errors.
+     */
+    private static boolean isPermanent(int status) {
+        return status >= 400 && status < 500
+                && status != 401 && status != 403 && status != 408 && status != 429;
+    }
+
+    /**
+     * Caller holds the lock.
+     */
+    private void deadLetter(Pending reservation, Outcome outcome) {
+        try {
+            String line = objectMapper.writeValueAsString(new DeadLetter(reservation.seq, reservation.sessionId,
+                    outcome.status(), outcome.error(), reservation.orderJson)) + System.lineSeparator();
+            Files.writeString(directory.resolve(DEAD_LETTER_FILE), line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to reservation dead-letter file", e);
+        }
+    }
+
+    /**
+     * Exponential backoff capped at {@code max-backoff}, with jitter so retries of many
+     * sessions do not line up.
+     */
+    private long backoff(int attempts) {
+        long base = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private void replay() throws IOException {
+        Path file = directory.resolve(JOURNAL_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        int corrupt = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JournalEntry entry;
+                try {
+                    entry = objectMapper.readValue(line, JournalEntry.class);
+                } catch (IOException e) {
+                    // a torn last line after a crash
+                    corrupt++;
+                    continue;
+                }
+                sequence = Math.max(sequence, entry.seq());
+                if (PUT.equals(entry.op())) {
+                    pending.put(entry.sessionId(), new Pending(entry.seq(), entry.sessionId(), entry.orderJson()));
+                } else if (ACK.equals(entry.op())) {
+                    Pending current = pending.get(entry.sessionId());
+                    if (current != null && current.seq == entry.seq()) {
+                        pending.remove(entry.sessionId());
+                    }
+                }
+            }
+        }
+        if (corrupt > 0) {
+            log.warn("Skipped {} unreadable reservation journal entries", corrupt);
+        }
+    }
+
+    /**
+     * Rewrites the journal with only the pending reservations. Caller holds the lock.
+     */
+    private void compact() {
+        Path file = directory.resolve(JOURNAL_FILE);
+        Path compacted = directory.resolve(JOURNAL_FILE + ".tmp");
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+                for (Pending reservation : pending.values()) {
+                    writer.write(objectMapper.writeValueAsString(
+                            new JournalEntry(PUT, reservation.seq, reservation.sessionId, reservation.orderJson)));
+                    writer.newLine();
+                }
+            }
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            journalEntries = pending.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not compact reservation journal " + file, e);
+        }
+    }
+
+    /**
+     * Caller holds the lock.
+     */
+    private void append(JournalEntry entry) {
+        try {
+            journal.write(objectMapper.writeValueAsString(entry));
+            journal.newLine();
+            journal.flush();
+            journalEntries++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to reservation journal", e);
+        }
+    }
+
+    private record JournalEntry(String op, long seq, String sessionId, String orderJson) {
+    }
+
+    private record DeadLetter(long seq, String sessionId, int status, String error, String orderJson) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record BulkStatus(int index, int status, String error) {
+    }
+
+    /**
+     * @param ofOrder whether the status was reported for the order, rather than for the call
+     */
+    private record Outcome(int status, String error, boolean ofOrder) {
+
+        static Outcome ofOrder(int status, String error) {
+            return new Outcome(status, error, true);
+        }
+
+        static Outcome ofCall(int status, String error) {
+            return new Outcome(status, error, false);
+        }
+    }
+
+    private static final class Pending {
+        private final long seq;
+        private final String sessionId;
+        private final String orderJson;
+        // Only touched by the dispatcher thread, under the lock
+        private int attempts;
+        private long nextAttemptAt;
+
+        private Pending(long seq, String sessionId, String orderJson) {
+            this.seq = seq;
+            this.sessionId = sessionId;
+            this.orderJson = orderJson;
+        }
+    }
+}
@@ -2,180 +2,193 @@ package com.chtrembl.petstoreapp.telemetry;
 
 import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.applicationinsights.telemetry.Duration;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
 import com.microsoft.applicationinsights.telemetry.PageViewTelemetry;
 import com.microsoft.applicationinsights.telemetry.SeverityLevel;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Custom TelemetryClient that sends data to Application Insights.
- * This version actually sends telemetry data instead of just logging.
+ * <p>
+ * Calls only enqueue into a {@link TelemetryPipeline}: forwarding, logging and metric
+ * aggregation happen in batches on a background thread, and telemetry is dropped rather
+ * than blocking the caller when the pipeline falls behind. Log lines are written there with
+ * the MDC the caller had when it made the call. Simple metrics such as
+ * {@code PageViews_*} are published as per-interval count/sum/min/max aggregates.
  */
 @Component
 public class PetStoreTelemetryClient {
 
-    private static final Logger logger = LoggerFactory.getLogger(PetStoreTelemetryClient.class);
     private static final Logger telemetryLogger = LoggerFactory.getLogger("ApplicationInsightsTelemetry");
 
-    private final TelemetryClient telemetryClient;
+    private final TelemetryPipeline pipeline;
 
-    public PetStoreTelemetryClient() {
-        this.telemetryClient = new TelemetryClient();
+    public PetStoreTelemetryClient(
+            @Value("${petstore.telemetry.buffer-size:16384}") int bufferSize,
+            @Value("${petstore.telemetry.drain-interval:PT0.2S}") java.time.Duration drainInterval,
+            @Value("${petstore.telemetry.publish-interval:PT10S}") java.time.Duration publishInterval) {
+        this.pipeline = new TelemetryPipeline(new TelemetryClient(), bufferSize, drainInterval, publishInterval);
     }
 
     public void track(Object telemetry) {
-        telemetryLogger.info("Custom telemetry tracked: {}", telemetry);
-        logger.debug("Telemetry object processed: {}", telemetry.getClass().getSimpleName());
-
         if (telemetry instanceof String string) {
-            telemetryClient.trackTrace(string);
+            pipeline.send(client -> {
+                telemetryLogger.info("Custom telemetry tracked: {}", string);
+                client.trackTrace(string);
+            });
         }
     }
 
     public void trackDependency(String dependencyName, String commandName, Object duration, boolean success) {
-        telemetryLogger.info("Dependency: {} - {} (Success: {})", dependencyName, commandName, success);
-        logger.debug("Dependency call tracked: {} -> {}", dependencyName, commandName);
-
         long durationMs = duration instanceof Long ? (Long) duration : 0L;
-        telemetryClient.trackDependency(dependencyName, commandName, new Duration(durationMs), success);
+        pipeline.send(client -> {
+            telemetryLogger.info("Dependency: {} - {} (Success: {})", dependencyName, commandName, success);
+            client.trackDependency(dependencyName, commandName, new Duration(durationMs), success);
+        });
     }
 
     public void trackEvent(String name, Map<String, String> properties, Map<String, Double> metrics) {
-        if (properties != null) {
-            properties.forEach(MDC::put);
-        }
-
-        telemetryLogger.info("Event: {} with properties: {} and metrics: {}", name, properties, metrics);
-        logger.info("Custom event tracked: {}", name);
-
-        telemetryClient.trackEvent(name, properties, metrics);
-
-        if (properties != null) {
-            properties.keySet().forEach(MDC::remove);
-        }
+        Map<String, String> propertiesCopy = copyOf(properties);
+        Map<String, Double> metricsCopy = copyOf(metrics);
+        pipeline.send(client -> {
+            putAll(propertiesCopy);
+            telemetryLogger.info("Event: {} with properties: {} and metrics: {}", name, propertiesCopy, metricsCopy);
+            client.trackEvent(name, propertiesCopy, metricsCopy);
+        });
     }
 
     public void trackEvent(String name) {
-        telemetryLogger.info("Event: {}", name);
-        logger.info("Simple event tracked: {}", name);
-
-        telemetryClient.trackEvent(name);
+        pipeline.send(client -> {
+            telemetryLogger.info("Event: {}", name);
+            client.trackEvent(name);
+        });
     }
 
     public void trackException(Exception exception, Map<String, String> properties, Map<String, Double> metrics) {
-        if (properties != null) {
-            properties.forEach(MDC::put);
-        }
-
-        telemetryLogger.error("Exception tracked with properties: {} and metrics: {}", properties, metrics, exception);
-        logger.error("Exception tracked: {}", exception.getMessage(), exception);
-
-        telemetryClient.trackException(exception, properties, metrics);
-
-        if (properties != null) {
-            properties.keySet().forEach(MDC::remove);
-        }
+        Map<String, String> propertiesCopy = copyOf(properties);
+        Map<String, Double> metricsCopy = copyOf(metrics);
+        pipeline.send(client -> {
+            putAll(propertiesCopy);
+            telemetryLogger.error("Exception tracked with properties: {} and metrics: {}",
+                    propertiesCopy, metricsCopy, exception);
+            client.trackException(exception, propertiesCopy, metricsCopy);
+        });
     }
 
     public void trackException(Exception exception) {
-        telemetryLogger.error("Exception tracked", exception);
-        logger.error("Simple exception tracked: {}", exception.getMessage(), exception);
-
-        telemetryClient.trackException(exception);
+        pipeline.send(client -> {
+            telemetryLogger.error("Exception tracked: {}", exception.getMessage(), exception);
+            client.trackException(exception);
+        });
     }
 
     public void trackHttpRequest(String name, Date timestamp, long duration, String responseCode, boolean success) {
-        telemetryLogger.info("HTTP Request: {} - {} ms (Response: {}, Success: {})", name, duration, responseCode, success);
-        logger.debug("HTTP request logged: {} took {} ms", name, duration);
-
-        telemetryClient.trackHttpRequest(name, timestamp, duration, responseCode, success);
+        pipeline.send(client -> {
+            telemetryLogger.info("HTTP Request: {} - {} ms (Response: {}, Success: {})",
+                    name, duration, responseCode, success);
+            client.trackHttpRequest(name, timestamp, duration, responseCode, success);
+        });
     }
 
+    /**
+     * Tracks an already aggregated metric; it is forwarded as is rather than re-aggregated.
+     */
     public void trackMetric(String name, double value, int sampleCount, double min, double max, Map<String, String> properties) {
-        if (properties != null) {
-            properties.forEach(MDC::put);
-        }
-
-        telemetryLogger.info("Metric: {} = {} (samples: {}, min: {}, max: {}) with properties: {}",
-                name, value, sampleCount, min, max, properties);
-        logger.debug("Metric tracked: {} = {}", name, value);
-
-        telemetryClient.trackMetric(name, value);
-
-        if (properties != null) {
-            properties.keySet().forEach(MDC::remove);
-        }
+        Map<String, String> propertiesCopy = copyOf(properties);
+        pipeline.send(client -> {
+            telemetryLogger.info("Metric: {} = {} (samples: {}, min: {}, max: {}) with properties: {}",
+                    name, value, sampleCount, min, max, propertiesCopy);
+            MetricTelemetry telemetry = new MetricTelemetry(name, value);
+            telemetry.setCount(sampleCount);
+            telemetry.setMin(min);
+            telemetry.setMax(max);
+            if (propertiesCopy != null) {
+                telemetry.getProperties().putAll(propertiesCopy);
+            }
+            client.trackMetric(telemetry);
+        });
     }
 
     public void trackMetric(String name, double value) {
-        telemetryLogger.info("Metric: {} = {}", name, value);
-        logger.debug("Simple metric tracked: {} = {}", name, value);
-
-        telemetryClient.trackMetric(name, value);
+        pipeline.record(name, value);
     }
 
     public void trackPageView(Object pageViewTelemetry) {
-        telemetryLogger.info("Page view tracked: {}", pageViewTelemetry);
-        logger.debug("Page view processed: {}", pageViewTelemetry);
-
         if (pageViewTelemetry instanceof PageViewTelemetry pageViewTel) {
-            telemetryClient.track(pageViewTel);
+            pipeline.send(client -> {
+                telemetryLogger.info("Page view tracked: {}", pageViewTel.getName());
+                client.track(pageViewTel);
+            });
         }
     }
 
     public void trackPageView(String name) {
-        telemetryLogger.info("Page view: {}", name);
-        logger.info("Page view tracked: {}", name);
-
-        telemetryClient.trackPageView(name);
+        pipeline.send(client -> {
+            telemetryLogger.info("Page view: {}", name);
+            client.trackPageView(name);
+        });
     }
 
     public void trackTrace(String message, Object severityLevel, Map<String, String> properties) {
-        if (properties != null) {
-            properties.forEach(MDC::put);
-        }
-
-        telemetryLogger.info("Trace [{}]: {} with properties: {}", severityLevel, message, properties);
-        logger.debug("Trace logged with level: {}", severityLevel);
-
-        if (severityLevel instanceof SeverityLevel severity) {
-            telemetryClient.trackTrace(message, severity, properties);
-        } else {
-            telemetryClient.trackTrace(message, SeverityLevel.Information, properties);
-        }
-
-        if (properties != null) {
-            properties.keySet().forEach(MDC::remove);
-        }
+        SeverityLevel severity = severityLevel instanceof SeverityLevel level ? level : SeverityLevel.Information;
+        Map<String, String> propertiesCopy = copyOf(properties);
+        pipeline.send(client -> {
+            telemetryLogger.info("Trace [{}]: {} with properties: {}", severity, message, propertiesCopy);
+            client.trackTrace(message, severity, propertiesCopy);
+        });
     }
 
     public void trackTrace(String message, Object severityLevel) {
-        telemetryLogger.info("Trace [{}]: {}", severityLevel, message);
-        logger.debug("Simple trace: {}", message);
-
-        if (severityLevel instanceof SeverityLevel severity) {
-            telemetryClient.trackTrace(message, severity);
-        } else {
-            telemetryClient.trackTrace(message, SeverityLevel.Information);
-        }
+        SeverityLevel severity = severityLevel instanceof SeverityLevel level ? level : SeverityLevel.Information;
+        pipeline.send(client -> {
+            telemetryLogger.info("Trace [{}]: {}", severity, message);
+            client.trackTrace(message, severity);
+        });
     }
 
     public void trackTrace(String message) {
-        telemetryLogger.info("Trace: {}", message);
-        logger.info("Trace message: {}", message);
-
-        telemetryClient.trackTrace(message);
+        pipeline.send(client -> {
+            telemetryLogger.info("Trace: {}", message);
+            client.trackTrace(message);
+        });
     }
 
     public void flush() {
-        telemetryLogger.info("Telemetry flush requested");
-        logger.debug("Telemetry flush operation called");
+        pipeline.flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pipeline.close();
+    }
+
+    /**
+     * Adds the telemetry properties to the MDC of the log line; the pipeline clears the MDC
+     * after every call.
+     */
+    private static void putAll(Map<String, String> properties) {
+        if (properties != null) {
+            properties.forEach((key, value) -> {
+                if (key != null && value != null) {
+                    MDC.put(key, value);
+                }
+            });
+        }
+    }
 
-        telemetryClient.flush();
+    /**
+     * Callers may reuse or mutate their maps after the call returns, and values can be null.
+     */
+    private static <V> Map<String, V> copyOf(Map<String, V> map) {
+        return map != null ? new HashMap<>(map) : null;
     }
 }
@@ -0,0 +1,183 @@
+package com.chtrembl.petstoreapp.telemetry;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Moves telemetry off the request thread.
+ * <p>
+ * Callers enqueue into a {@link TelemetryRingBuffer} and return immediately; when the buffer
+ * is full the item is dropped and counted. A single background thread drains the buffer,
+ * forwards events, traces and exceptions to the {@link TelemetryClient}, and folds metric
+ * samples into per-name count/sum/min/max aggregates that are published once per interval.
+ * The caller's MDC is captured with each call and restored around it on the background
+ * thread, so anything it logs keeps the trace and request ids of the request that sent it.
+ */
+@Slf4j
+final class TelemetryPipeline {
+
+    private final TelemetryClient telemetryClient;
+    private final TelemetryRingBuffer<Item> buffer;
+    private final long publishIntervalNanos;
+    private final LongAdder dropped = new LongAdder();
+    private final ScheduledExecutorService drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "telemetry-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only touched by the drainer thread
+    private final Map<String, MetricAggregate> aggregates = new HashMap<>();
+    private long nextPublish;
+
+    TelemetryPipeline(TelemetryClient telemetryClient, int bufferSize,
+                      Duration drainInterval, Duration publishInterval) {
+        this.telemetryClient = telemetryClient;
+        this.buffer = new TelemetryRingBuffer<>(bufferSize);
+        this.publishIntervalNanos = publishInterval.toNanos();
+        this.nextPublish = System.nanoTime() + publishIntervalNanos;
+        drainer.scheduleWithFixedDelay(this::tick,
+                drainInterval.toMillis(), drainInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Telemetry pipeline started with buffer={}, drainInterval={}, publishInterval={}",
+                buffer.capacity(), drainInterval, publishInterval);
+    }
+
+    /**
+     * Queues a call against the underlying client, to run with the caller's current MDC.
+     */
+    void send(Consumer<TelemetryClient> action) {
+        offer(new Send(action, MDC.getCopyOfContextMap()));
+    }
+
+    /**
+     * Queues a metric sample to be aggregated with the other samples of the same name.
+     */
+    void record(String name, double value) {
+        offer(new Sample(name, value));
+    }
+
+    /**
+     * Drains, publishes the current aggregates and flushes the client, asynchronously.
+     */
+    void flush() {
+        drainer.execute(() -> {
+            drain();
+            publish();
+            telemetryClient.flush();
+        });
+    }
+
+    /**
+     * Items rejected because the buffer was full since the last publish.
+     */
+    long droppedCount() {
+        return dropped.sum();
+    }
+
+    void close() {
+        flush();
+        drainer.shutdown();
+        try {
+            if (!drainer.awaitTermination(5, TimeUnit.SECONDS)) {
+                drainer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            drainer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void offer(Item item) {
+        if (!buffer.offer(item)) {
+            dropped.increment();
+        }
+    }
+
+    private void tick() {
+        try {
+            drain();
+            if (System.nanoTime() - nextPublish >= 0) {
+                publish();
+            }
+        } catch (Exception e) {
+            // never let an exception cancel the scheduled drain
+            log.warn("Telemetry pipeline drain failed: {}", e.getMessage());
+        }
+    }
+
+    private void drain() {
+        Item item;
+        while ((item = buffer.poll()) != null) {
+            switch (item) {
+                case Sample sample -> aggregates
+                        .computeIfAbsent(sample.name(), name -> new MetricAggregate())
+                        .add(sample.value());
+                case Send send -> {
+                    if (send.context() != null) {
+                        MDC.setContextMap(send.context());
+                    }
+                    try {
+                        send.action().accept(telemetryClient);
+                    } catch (Exception e) {
+                        log.warn("Failed to forward telemetry: {}", e.getMessage());
+                    } finally {
+                        MDC.clear();
+                    }
+                }
+            }
+        }
+    }
+
+    private void publish() {
+        nextPublish = System.nanoTime() + publishIntervalNanos;
+        aggregates.forEach((name, aggregate) -> telemetryClient.trackMetric(aggregate.toTelemetry(name)));
+        aggregates.clear();
+
+        long droppedCount = dropped.sumThenReset();
+        if (droppedCount > 0) {
+            log.warn("Telemetry buffer full, dropped {} items since the last publish", droppedCount);
+        }
+    }
+
+    private sealed interface Item permits Send, Sample {
+    }
+
+    private record Send(Consumer<TelemetryClient> action, Map<String, String> context) implements Item {
+    }
+
+    private record Sample(String name, double value) implements Item {
+    }
+
+    private static final class MetricAggregate {
+        private int count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        void add(double value) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        MetricTelemetry toTelemetry(String name) {
+            MetricTelemetry telemetry = new MetricTelemetry(name, sum);
+            telemetry.setCount(count);
+            telemetry.setMin(min);
+            telemetry.setMax(max);
+            return telemetry;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.chtrembl.petstoreapp.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free multi-producer / single-consumer ring buffer.
+ * <p>
+ * Each slot carries a sequence number telling producers whether it is free and the consumer
+ * whether it is published, so producers only contend on a single CAS of the tail. A full
+ * buffer rejects the offer instead of waiting.
+ */
+final class TelemetryRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final int mask;
+
+    // Only touched by the single consumer
+    private long head;
+
+    TelemetryRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity) - 1) << 1;
+        this.items = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the buffer is full and the item was dropped
+     */
+    boolean offer(E item) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) (position & mask);
+            long available = sequences.get(slot) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.lazySet(slot, item);
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (available < 0) {
+                return false;
+            }
+            // another producer claimed this slot first, retry with the new tail
+        }
+    }
+
+    /**
+     * @return the oldest published item, or null if there is none; consumer thread only
+     */
+    E poll() {
+        int slot = (int) (head & mask);
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+        E item = items.get(slot);
+        items.lazySet(slot, null);
+        sequences.set(slot, head + mask + 1);
+        head++;
+        return item;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,65 @@
+package com.chtrembl.petstoreapp.config;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.chtrembl.petstoreapp.config.Constants.X_REQUEST_ID;
+
+/**
+ * Loopback HTTP server standing in for the downstream services. Answers every call with an
+ * empty JSON array after {@code latency} and records the request headers by X-Request-ID.
+ */
+final class DownstreamStub implements AutoCloseable {
+
+    private static final byte[] EMPTY_LIST = "[]".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Headers> received = new ConcurrentHashMap<>();
+
+    DownstreamStub(Duration latency) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4096);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(latency);
+                String requestId = exchange.getRequestHeaders().getFirst(X_REQUEST_ID);
+                if (requestId != null) {
+                    received.put(requestId, exchange.getRequestHeaders());
+                }
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, EMPTY_LIST.length);
+                exchange.getResponseBody().write(EMPTY_LIST);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    String url() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    Headers received(String requestId) {
+        return received.get(requestId);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
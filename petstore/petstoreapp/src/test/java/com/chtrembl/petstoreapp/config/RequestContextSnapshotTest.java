@@ -0,0 +1,106 @@
+package com.chtrembl.petstoreapp.config;
+
+import com.chtrembl.petstoreapp.client.PetServiceClient;
+import com.chtrembl.petstoreapp.model.User;
+import com.chtrembl.petstoreapp.model.WebRequest;
+import com.sun.net.httpserver.Headers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.chtrembl.petstoreapp.config.Constants.REQUEST_ID;
+import static com.chtrembl.petstoreapp.config.Constants.X_HTTP_SESSION_ID;
+import static com.chtrembl.petstoreapp.config.Constants.X_SESSION_ID;
+import static com.chtrembl.petstoreapp.config.Constants.X_USER_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A page fan-out call may still be running when its request has completed and the container
+ * has moved on. It must send what the request had, read from the snapshot, and never see the
+ * request or the session again.
+ */
+class RequestContextSnapshotTest {
+
+    private static DownstreamStub downstream;
+    private static SimulatedStorefront storefront;
+
+    @BeforeAll
+    static void start() throws Exception {
+        downstream = new DownstreamStub(Duration.ZERO);
+        storefront = new SimulatedStorefront(downstream.url(), 4);
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        storefront.close();
+        downstream.close();
+    }
+
+    @Test
+    void callOutlivingItsRequestSendsTheCapturedValues() throws Exception {
+        User user = new User();
+        user.setSessionId("session-1");
+        user.setName("alice");
+        WebRequest webRequest = new WebRequest();
+        webRequest.addHeader("X-Forwarded-For", "10.0.0.1");
+        PetServiceClient client = storefront.petServiceClient(user);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/dogbreeds");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+        RequestContextSnapshot snapshot;
+        Map<String, String> context;
+        try {
+            MDC.put(REQUEST_ID, "late-call");
+            snapshot = RequestContextSnapshot.capture(webRequest, user);
+            context = MDC.getCopyOfContextMap();
+        } finally {
+            MDC.clear();
+            RequestContextHolder.resetRequestAttributes();
+        }
+        String httpSessionId = request.getSession().getId();
+
+        // the request is over and the session now belongs to another one
+        request.close();
+        user.setSessionId("session-2");
+        user.setName("bob");
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture.supplyAsync(() -> {
+                MDC.setContextMap(context);
+                try {
+                    return snapshot.callWith(() -> {
+                        assertThat(RequestContextHolder.getRequestAttributes()).isNull();
+                        return client.getPetsByStatus("available");
+                    });
+                } finally {
+                    MDC.clear();
+                }
+            }, executor).get(30, TimeUnit.SECONDS);
+        }
+
+        Headers sent = downstream.received("late-call");
+        assertThat(sent).isNotNull();
+        assertThat(sent.getFirst(X_SESSION_ID)).isEqualTo("session-1");
+        assertThat(sent.getFirst(X_HTTP_SESSION_ID)).isEqualTo(httpSessionId);
+        assertThat(sent.getFirst(X_USER_NAME)).isEqualTo("alice");
+        assertThat(sent.getFirst("X-Forwarded-For")).isEqualTo("10.0.0.1");
+        assertThat(RequestContextSnapshot.current()).isNull();
+    }
+
+    @Test
+    void nothingIsCapturedOutsideOfARequest() {
+        assertThat(RequestContextSnapshot.capture(new WebRequest(), new User())).isNull();
+    }
+}
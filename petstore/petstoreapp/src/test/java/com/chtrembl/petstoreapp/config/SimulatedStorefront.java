@@ -0,0 +1,96 @@
+package com.chtrembl.petstoreapp.config;
+
+import com.chtrembl.petstoreapp.client.PetServiceClient;
+import com.chtrembl.petstoreapp.model.User;
+import com.chtrembl.petstoreapp.model.WebRequest;
+import feign.Client;
+import feign.Feign;
+import feign.hc5.ApacheHttp5Client;
+import feign.jackson.JacksonDecoder;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.slf4j.MDC;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static com.chtrembl.petstoreapp.config.Constants.REQUEST_ID;
+import static com.chtrembl.petstoreapp.config.Constants.SPAN_ID;
+import static com.chtrembl.petstoreapp.config.Constants.TRACE_ID;
+
+/**
+ * Runs storefront requests the way the servlet container does, without starting the
+ * application: the {@link MDCInterceptor} opens and closes the request on the calling thread,
+ * and the handler makes a pet service call through a Feign client wired with the real
+ * {@link FeignConfig} request interceptor and the pooled HttpClient 5 transport.
+ */
+final class SimulatedStorefront implements AutoCloseable {
+
+    private final String downstreamUrl;
+    private final CloseableHttpClient httpClient;
+    private final Client feignTransport;
+    private final MDCInterceptor mdcInterceptor = new MDCInterceptor();
+
+    SimulatedStorefront(String downstreamUrl, int maxConnections) {
+        this.downstreamUrl = downstreamUrl;
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections)
+                        .build())
+                .build();
+        this.feignTransport = new ApacheHttp5Client(httpClient);
+    }
+
+    /**
+     * Builds the pet service client a session would use; the user stands in for the
+     * session-scoped bean.
+     */
+    PetServiceClient petServiceClient(User sessionUser) {
+        return Feign.builder()
+                .client(feignTransport)
+                .contract(new SpringMvcContract())
+                .decoder(new JacksonDecoder())
+                .requestInterceptor(new FeignConfig(new WebRequest(), sessionUser).requestInterceptor())
+                .target(PetServiceClient.class, downstreamUrl);
+    }
+
+    /**
+     * Handles one storefront request on the current thread.
+     *
+     * @return the MDC ids the request ran with and what was left in the MDC afterwards
+     */
+    Handled handle(PetServiceClient client) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/dogbreeds");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        try {
+            mdcInterceptor.preHandle(request, response, null);
+            String requestId = MDC.get(REQUEST_ID);
+            String traceId = MDC.get(TRACE_ID);
+            String spanId = MDC.get(SPAN_ID);
+
+            client.getPetsByStatus("available");
+
+            mdcInterceptor.afterCompletion(request, response, null, null);
+            return new Handled(requestId, traceId, spanId, request.getSession().getId(), MDC.getCopyOfContextMap());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    record Handled(String requestId, String traceId, String spanId, String httpSessionId,
+                   Map<String, String> mdcAfterCompletion) {
+    }
+}
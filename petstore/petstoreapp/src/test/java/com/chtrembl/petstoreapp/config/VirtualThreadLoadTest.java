@@ -0,0 +1,99 @@
+package com.chtrembl.petstoreapp.config;
+
+import com.chtrembl.petstoreapp.client.PetServiceClient;
+import com.chtrembl.petstoreapp.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares storefront request latency at 2k concurrent sessions between Tomcat's default
+ * platform pool (200 threads) and a virtual thread per request, with every request blocking
+ * on a 50ms downstream Feign call.
+ * <p>
+ * Opt-in, as it takes several seconds: {@code mvn test -Dtest=VirtualThreadLoadTest -Dpetstore.load-test=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "petstore.load-test", matches = "true")
+class VirtualThreadLoadTest {
+
+    private static final int SESSIONS = 2000;
+    private static final int REQUESTS_PER_SESSION = 5;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final Duration DOWNSTREAM_LATENCY = Duration.ofMillis(50);
+
+    @Test
+    void virtualThreadsLowerP99At2kSessions() throws Exception {
+        try (DownstreamStub downstream = new DownstreamStub(DOWNSTREAM_LATENCY);
+             SimulatedStorefront storefront = new SimulatedStorefront(downstream.url(), SESSIONS)) {
+
+            // warm up connections and JIT before measuring either mode
+            run(storefront, Executors.newVirtualThreadPerTaskExecutor());
+
+            long[] platform = run(storefront, Executors.newFixedThreadPool(TOMCAT_MAX_THREADS));
+            long[] virtual = run(storefront, Executors.newVirtualThreadPerTaskExecutor());
+
+            log.info("Platform pool ({} threads): p50={}ms p99={}ms", TOMCAT_MAX_THREADS,
+                    millis(percentile(platform, 50)), millis(percentile(platform, 99)));
+            log.info("Virtual threads: p50={}ms p99={}ms",
+                    millis(percentile(virtual, 50)), millis(percentile(virtual, 99)));
+
+            assertThat(percentile(virtual, 99)).isLessThan(percentile(platform, 99));
+        }
+    }
+
+    /**
+     * Starts all sessions at once; each sends its requests one after another to
+     * {@code requestThreads} and times them from submission, so waiting for a free request
+     * thread counts towards the latency as it does in Tomcat.
+     *
+     * @return the latency of every request in nanoseconds, sorted
+     */
+    private static long[] run(SimulatedStorefront storefront, ExecutorService requestThreads) throws Exception {
+        long[] latencies = new long[SESSIONS * REQUESTS_PER_SESSION];
+        AtomicInteger next = new AtomicInteger();
+
+        try (requestThreads; ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>(SESSIONS);
+            for (int s = 0; s < SESSIONS; s++) {
+                User user = new User();
+                user.setSessionId("session-" + s);
+                PetServiceClient client = storefront.petServiceClient(user);
+                running.add(sessions.submit(() -> {
+                    for (int r = 0; r < REQUESTS_PER_SESSION; r++) {
+                        long started = System.nanoTime();
+                        requestThreads.submit(() -> storefront.handle(client)).get();
+                        latencies[next.getAndIncrement()] = System.nanoTime() - started;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> session : running) {
+                session.get(5, TimeUnit.MINUTES);
+            }
+        }
+
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        return sorted[(int) Math.ceil(sorted.length * percentile / 100.0) - 1];
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
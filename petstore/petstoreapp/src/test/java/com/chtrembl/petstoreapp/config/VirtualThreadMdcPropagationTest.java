@@ -0,0 +1,83 @@
+package com.chtrembl.petstoreapp.config;
+
+import com.chtrembl.petstoreapp.client.PetServiceClient;
+import com.chtrembl.petstoreapp.model.User;
+import com.sun.net.httpserver.Headers;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.chtrembl.petstoreapp.config.Constants.X_HTTP_SESSION_ID;
+import static com.chtrembl.petstoreapp.config.Constants.X_PARENT_SPAN_ID;
+import static com.chtrembl.petstoreapp.config.Constants.X_SESSION_ID;
+import static com.chtrembl.petstoreapp.config.Constants.X_TRACE_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * With {@code spring.threads.virtual.enabled} every request runs on its own virtual thread.
+ * Many such requests at once must each send their own ids downstream through the Feign
+ * interceptor, and leave nothing behind in the MDC.
+ */
+class VirtualThreadMdcPropagationTest {
+
+    private static final int REQUESTS = 200;
+
+    private static DownstreamStub downstream;
+    private static SimulatedStorefront storefront;
+
+    @BeforeAll
+    static void start() throws Exception {
+        // a little latency keeps all requests in flight at the same time
+        downstream = new DownstreamStub(Duration.ofMillis(20));
+        storefront = new SimulatedStorefront(downstream.url(), REQUESTS);
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        storefront.close();
+        downstream.close();
+    }
+
+    @Test
+    void eachConcurrentRequestSendsItsOwnTraceContextDownstream() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SimulatedStorefront.Handled>> requests = new ArrayList<>();
+        List<String> sessionIds = new ArrayList<>();
+
+        try (ExecutorService tomcat = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < REQUESTS; i++) {
+                User user = new User();
+                user.setSessionId("session-" + i);
+                sessionIds.add(user.getSessionId());
+                PetServiceClient client = storefront.petServiceClient(user);
+                requests.add(tomcat.submit(() -> {
+                    assertThat(Thread.currentThread().isVirtual()).isTrue();
+                    start.await();
+                    return storefront.handle(client);
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < REQUESTS; i++) {
+                SimulatedStorefront.Handled handled = requests.get(i).get(30, TimeUnit.SECONDS);
+                Headers sent = downstream.received(handled.requestId());
+
+                assertThat(sent).as("downstream call of request %d", i).isNotNull();
+                assertThat(sent.getFirst(X_TRACE_ID)).isEqualTo(handled.traceId());
+                assertThat(sent.getFirst(X_PARENT_SPAN_ID)).isEqualTo(handled.spanId());
+                assertThat(sent.getFirst(X_SESSION_ID)).isEqualTo(sessionIds.get(i));
+                assertThat(sent.getFirst(X_HTTP_SESSION_ID)).isEqualTo(handled.httpSessionId());
+                assertThat(handled.mdcAfterCompletion()).as("MDC after request %d", i).isNullOrEmpty();
+            }
+        }
+    }
+}
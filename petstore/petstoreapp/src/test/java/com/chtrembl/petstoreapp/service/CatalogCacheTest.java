@@ -0,0 +1,126 @@
+package com.chtrembl.petstoreapp.service;
+
+import com.chtrembl.petstoreapp.client.PetServiceClient;
+import com.chtrembl.petstoreapp.client.ProductServiceClient;
+import com.chtrembl.petstoreapp.model.Pet;
+import com.chtrembl.petstoreapp.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogCacheTest {
+
+    private static final int REQUESTS = 16;
+
+    private final PetServiceClient petServiceClient = mock(PetServiceClient.class);
+    private final ProductServiceClient productServiceClient = mock(ProductServiceClient.class);
+    private final CatalogCache cache = new CatalogCache(petServiceClient, productServiceClient);
+
+    @Test
+    void concurrentFirstRequestsShareOneFetch() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+        List<Pet> catalog = List.of(pet(1L), pet(2L));
+        when(petServiceClient.getPetsByStatus(anyString())).thenAnswer(invocation -> {
+            fetches.incrementAndGet();
+            fetching.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return catalog;
+        });
+
+        List<Future<List<Pet>>> requests = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(REQUESTS)) {
+            for (int i = 0; i < REQUESTS; i++) {
+                requests.add(executor.submit(cache::getPets));
+            }
+            assertThat(fetching.await(10, TimeUnit.SECONDS)).isTrue();
+            // give the other requests time to pile up behind the load in flight
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<List<Pet>> request : requests) {
+                assertThat(request.get(10, TimeUnit.SECONDS)).containsExactlyElementsOf(catalog);
+            }
+        }
+        assertThat(fetches).hasValue(1);
+        assertThat(cache.getPet(2L)).contains(catalog.get(1));
+    }
+
+    @Test
+    void failedFirstLoadIsReportedToTheCallerAndRetriedByTheNext() {
+        when(productServiceClient.getProductsByStatus(anyString()))
+                .thenThrow(new IllegalStateException("product service down"))
+                .thenReturn(List.of(product(7L)));
+
+        assertThatThrownBy(cache::getProducts).hasMessage("product service down");
+        assertThat(cache.hasProducts()).isFalse();
+
+        assertThat(cache.getProducts()).extracting(Product::getId).containsExactly(7L);
+        assertThat(cache.hasProducts()).isTrue();
+    }
+
+    @Test
+    void scheduledRefreshLoadsCatalogsThatWereNeverLoaded() {
+        when(petServiceClient.getPetsByStatus(anyString())).thenReturn(List.of(pet(1L)));
+        when(productServiceClient.getProductsByStatus(anyString()))
+                .thenThrow(new IllegalStateException("product service down"))
+                .thenReturn(List.of(product(7L)));
+
+        cache.refresh();
+        assertThat(cache.hasProducts()).isFalse();
+
+        cache.refresh();
+        assertThat(cache.hasProducts()).isTrue();
+        assertThat(cache.getProducts()).extracting(Product::getId).containsExactly(7L);
+        assertThat(cache.getPets()).extracting(Pet::getId).containsExactly(1L);
+        // both loaded by the refreshes, the reads did not fetch again
+        verify(productServiceClient, times(2)).getProductsByStatus(anyString());
+        verify(petServiceClient, times(2)).getPetsByStatus(anyString());
+    }
+
+    @Test
+    void failedRefreshKeepsThePreviousSnapshot() {
+        when(petServiceClient.getPetsByStatus(anyString()))
+                .thenReturn(List.of(pet(1L)))
+                .thenThrow(new IllegalStateException("pet service down"))
+                .thenReturn(List.of(pet(1L), pet(3L)));
+
+        assertThat(cache.getPets()).extracting(Pet::getId).containsExactly(1L);
+
+        cache.refresh();
+        assertThat(cache.getPets()).extracting(Pet::getId).containsExactly(1L);
+
+        cache.refresh();
+        assertThat(cache.getPets()).extracting(Pet::getId).containsExactly(1L, 3L);
+    }
+
+    private static Pet pet(long id) {
+        Pet pet = new Pet();
+        pet.setId(id);
+        pet.setName("pet-" + id);
+        return pet;
+    }
+
+    private static Product product(long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("product-" + id);
+        return product;
+    }
+}
@@ -0,0 +1,47 @@
+package com.chtrembl.petstoreapp.service;
+
+import com.chtrembl.petstoreapp.exception.OrderServiceException;
+import com.chtrembl.petstoreapp.service.PageData.Part;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageDataTest {
+
+    @Test
+    void reportsTimeoutsAsMissedDeadlines() {
+        PageData page = page(Part.ORDER, new TimeoutException());
+
+        assertThat(page.isAvailable(Part.ORDER)).isFalse();
+        assertThat(page.failureReason(Part.ORDER)).isEqualTo("did not respond in time");
+        assertThat(page.failure(Part.ORDER)).isInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void reportsOtherFailuresWithTheirMessage() {
+        PageData page = page(Part.ORDER, new OrderServiceException("HTTP 503 from order service"));
+
+        assertThat(page.failureReason(Part.ORDER)).isEqualTo("failed: HTTP 503 from order service");
+        assertThat(page(Part.PET, new IllegalStateException()).failureReason(Part.PET))
+                .isEqualTo("failed: IllegalStateException");
+    }
+
+    @Test
+    void hasNoReasonForAvailableParts() {
+        PageData page = page(Part.ORDER, new TimeoutException());
+
+        assertThat(page.isAvailable(Part.PRODUCTS)).isTrue();
+        assertThat(page.failure(Part.PRODUCTS)).isNull();
+        assertThat(page.failureReason(Part.PRODUCTS)).isNull();
+    }
+
+    private static PageData page(Part failed, Throwable failure) {
+        Map<Part, Throwable> failures = new EnumMap<>(Part.class);
+        failures.put(failed, failure);
+        return new PageData(null, null, null, failures);
+    }
+}
@@ -0,0 +1,77 @@
+package com.chtrembl.petstoreapp.service;
+
+import com.chtrembl.petstoreapp.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a product page lookup through {@link ProductCatalogIndex} with the stream filter
+ * over the tag list's string form that ProductManagementService used before.
+ * <p>
+ * Not part of the unit test run. Start it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.chtrembl.petstoreapp.service.ProductCatalogIndexBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductCatalogIndexBenchmark {
+
+    private static final String[] CATEGORIES = {"Dog Toy", "Dog Food", "Cat Toy", "Cat Food", "Fish Toy", "Fish Food"};
+    private static final String CATEGORY = "Dog Toy";
+    private static final String TAG = "large";
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private List<Product> products;
+    private ProductCatalogIndex index;
+
+    @Setup
+    public void setUp() {
+        products = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            products.add(ProductCatalogIndexTest.product(id, CATEGORIES[id % CATEGORIES.length],
+                    id % 2 == 0 ? "large" : "small"));
+        }
+        index = ProductCatalogIndex.of(products);
+    }
+
+    @Benchmark
+    public List<Product> streamFilter() {
+        return products.stream()
+                .filter(product -> CATEGORY.equals(product.getCategory().getName())
+                        && product.getTags().toString().contains(TAG))
+                .toList();
+    }
+
+    @Benchmark
+    public List<Product> indexLookup() {
+        return index.find(CATEGORY, TAG);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductCatalogIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,54 @@
+package com.chtrembl.petstoreapp.service;
+
+import com.chtrembl.petstoreapp.model.Category;
+import com.chtrembl.petstoreapp.model.Product;
+import com.chtrembl.petstoreapp.model.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCatalogIndexTest {
+
+    @Test
+    void findsProductsByCategoryAndExactTag() {
+        Product largeToy = product(1L, "Dog Toy", "large");
+        Product smallToy = product(2L, "Dog Toy", "small");
+        Product extraLargeToy = product(3L, "Dog Toy", "extra-large");
+        Product largeFood = product(4L, "Dog Food", "large");
+        Product bothSizes = product(5L, "Dog Toy", "small", "large");
+        ProductCatalogIndex index = ProductCatalogIndex.of(List.of(largeToy, smallToy, extraLargeToy, largeFood, bothSizes));
+
+        assertThat(index.find("Dog Toy", "large")).containsExactly(largeToy, bothSizes);
+        assertThat(index.find("Dog Toy", "small")).containsExactly(smallToy, bothSizes);
+        assertThat(index.find("Dog Food", "small")).isEmpty();
+        assertThat(index.find("Cat Toy", "large")).isEmpty();
+    }
+
+    @Test
+    void listsProductTaggedTwiceOnlyOnce() {
+        Product toy = product(1L, "Dog Toy", "large", "large");
+
+        assertThat(ProductCatalogIndex.of(List.of(toy)).find("Dog Toy", "large")).containsExactly(toy);
+    }
+
+    @Test
+    void skipsProductsWithoutCategoryOrTags() {
+        Product noCategory = product(1L, null, "large");
+        Product noTags = product(2L, "Dog Toy");
+        noTags.setTags(null);
+
+        assertThat(ProductCatalogIndex.of(List.of(noCategory, noTags)).find("Dog Toy", "large")).isEmpty();
+    }
+
+    static Product product(long id, String category, String... tags) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("product-" + id);
+        product.setCategory(category != null ? Category.builder().name(category).build() : null);
+        product.setTags(Arrays.stream(tags).map(tag -> Tag.builder().name(tag).build()).toList());
+        return product;
+    }
+}
@@ -0,0 +1,151 @@
+package com.chtrembl.petstoreapp.service;
+
+import com.chtrembl.petstoreapp.client.ReserveOrderClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReservationOutboxTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    private final List<String> bulkBodies = new ArrayList<>();
+    private final List<ReservationOutbox> outboxes = new ArrayList<>();
+    private String bulkResponse;
+    private int bulkFailureStatus;
+
+    @AfterEach
+    void stopOutboxes() {
+        outboxes.forEach(ReservationOutbox::stop);
+    }
+
+    @Test
+    void sendsDueReservationsAsOneBulkCall() throws Exception {
+        ReservationOutbox outbox = start();
+        outbox.enqueue("a", "{\"id\":\"a\"}");
+        outbox.enqueue("b", "{\"id\":\"b\"}");
+        bulkResponse = "[{\"index\":0,\"status\":200},{\"index\":1,\"status\":200}]";
+
+        dispatch(outbox);
+
+        assertThat(bulkBodies).hasSize(1);
+        JsonNode orders = MAPPER.readTree(bulkBodies.get(0));
+        assertThat(orders).hasSize(2);
+        assertThat(orders.get(0).get("sessionId").asText()).isEqualTo("a");
+        assertThat(orders.get(1).get("sessionId").asText()).isEqualTo("b");
+        assertThat(outbox.pendingCount()).isZero();
+    }
+
+    @Test
+    void rejectedReservationIsDeadLetteredAndNotReplayed() throws Exception {
+        ReservationOutbox outbox = start();
+        outbox.enqueue("ok", "{\"id\":\"ok\"}");
+        outbox.enqueue("bad", "{\"id\":\"bad\"}");
+        outbox.enqueue("busy", "{\"id\":\"busy\"}");
+        bulkResponse = "[{\"index\":0,\"status\":200},"
+                + "{\"index\":1,\"status\":400,\"error\":\"sessionId required\"},"
+                + "{\"index\":2,\"status\":503,\"error\":\"try again\"}]";
+
+        dispatch(outbox);
+
+        assertThat(outbox.pendingCount()).isEqualTo(1);
+        List<String> deadLetters = Files.readAllLines(directory.resolve("reservations.dead-letter"), StandardCharsets.UTF_8);
+        assertThat(deadLetters).hasSize(1);
+        assertThat(MAPPER.readTree(deadLetters.get(0)).get("sessionId").asText()).isEqualTo("bad");
+        assertThat(MAPPER.readTree(deadLetters.get(0)).get("status").asInt()).isEqualTo(400);
+
+        outbox.stop();
+        outboxes.remove(outbox);
+        assertThat(start().pendingCount()).as("pending after restart").isEqualTo(1);
+    }
+
+    @Test
+    void unreportedReservationIsRetried() {
+        ReservationOutbox outbox = start();
+        outbox.enqueue("a", "{\"id\":\"a\"}");
+        outbox.enqueue("b", "{\"id\":\"b\"}");
+        // the function stops reporting at malformed input
+        bulkResponse = "[{\"index\":0,\"status\":200}]";
+
+        dispatch(outbox);
+
+        assertThat(outbox.pendingCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {400, 404, 413, 500})
+    void failedBulkCallKeepsTheWholeBatchPending(int status) {
+        ReservationOutbox outbox = start();
+        outbox.enqueue("a", "{\"id\":\"a\"}");
+        outbox.enqueue("b", "{\"id\":\"b\"}");
+        // e.g. a function app without reserveOrders deployed or a gateway refusing the body
+        bulkFailureStatus = status;
+
+        dispatch(outbox);
+
+        assertThat(outbox.pendingCount()).isEqualTo(2);
+        assertThat(directory.resolve("reservations.dead-letter")).doesNotExist();
+    }
+
+    private ReservationOutbox start() {
+        ReservationOutbox outbox = new ReservationOutbox(new ReserveOrderClient() {
+            @Override
+            public ResponseEntity<String> reserveOrder(String orderJson, String sessionId, String functionCode) {
+                throw new UnsupportedOperationException("reservations are sent in bulk");
+            }
+
+            @Override
+            public ResponseEntity<String> reserveOrders(String ordersJson, String functionCode) {
+                bulkBodies.add(ordersJson);
+                if (bulkFailureStatus != 0) {
+                    Request request = Request.create(Request.HttpMethod.POST, "/api/reserveOrders", Map.of(),
+                            null, StandardCharsets.UTF_8, null);
+                    throw FeignException.errorStatus("reserveOrders", Response.builder()
+                            .status(bulkFailureStatus).reason("failed").request(request).headers(Map.of()).build());
+                }
+                return ResponseEntity.ok(bulkResponse);
+            }
+        });
+        ReflectionTestUtils.setField(outbox, "reserveFunctionCode", "code");
+        ReflectionTestUtils.setField(outbox, "directory", directory);
+        // dispatched by the test only
+        ReflectionTestUtils.setField(outbox, "dispatchInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(outbox, "batchSize", 50);
+        ReflectionTestUtils.setField(outbox, "initialBackoff", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(outbox, "maxBackoff", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(outbox, "compactThreshold", 10_000);
+        try {
+            outbox.start();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        outboxes.add(outbox);
+        return outbox;
+    }
+
+    private static void dispatch(ReservationOutbox outbox) {
+        ReflectionTestUtils.invokeMethod(outbox, "dispatch");
+    }
+}
@@ -0,0 +1,156 @@
+package com.chtrembl.petstoreapp.telemetry;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.MDC;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The drain and publish intervals are far longer than the test, so nothing is forwarded
+ * until {@link TelemetryPipeline#flush()} runs on the pipeline thread.
+ */
+class TelemetryPipelineTest {
+
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final TelemetryClient client = mock(TelemetryClient.class);
+    private TelemetryPipeline pipeline;
+
+    @AfterEach
+    void close() {
+        MDC.clear();
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void aggregatesSamplesPerNameIntoCountSumMinAndMax() {
+        pipeline = new TelemetryPipeline(client, 64, NEVER, NEVER);
+
+        pipeline.record("PageViews_home", 3);
+        pipeline.record("PageViews_home", 1);
+        pipeline.record("PageViews_home", 5);
+        pipeline.record("PetLoadDuration_dog", 120);
+
+        Map<String, MetricTelemetry> published = flushAndCapture(1);
+        assertThat(published).containsOnlyKeys("PageViews_home", "PetLoadDuration_dog");
+
+        MetricTelemetry pageViews = published.get("PageViews_home");
+        assertThat(pageViews.getValue()).isEqualTo(9);
+        assertThat(pageViews.getCount()).isEqualTo(3);
+        assertThat(pageViews.getMin()).isEqualTo(1);
+        assertThat(pageViews.getMax()).isEqualTo(5);
+
+        MetricTelemetry loadDuration = published.get("PetLoadDuration_dog");
+        assertThat(loadDuration.getValue()).isEqualTo(120);
+        assertThat(loadDuration.getCount()).isEqualTo(1);
+        assertThat(loadDuration.getMin()).isEqualTo(120);
+        assertThat(loadDuration.getMax()).isEqualTo(120);
+    }
+
+    @Test
+    void startsEachIntervalWithFreshAggregates() {
+        pipeline = new TelemetryPipeline(client, 64, NEVER, NEVER);
+
+        pipeline.record("PageViews_home", 10);
+        flushAndCapture(1);
+
+        pipeline.record("PageViews_home", 2);
+        MetricTelemetry second = flushAndCapture(2).get("PageViews_home");
+        assertThat(second.getValue()).isEqualTo(2);
+        assertThat(second.getCount()).isEqualTo(1);
+        assertThat(second.getMin()).isEqualTo(2);
+        assertThat(second.getMax()).isEqualTo(2);
+    }
+
+    @Test
+    void dropsAndCountsItemsOnceTheBufferIsFull() {
+        pipeline = new TelemetryPipeline(client, 4, NEVER, NEVER);
+
+        for (int i = 1; i <= 10; i++) {
+            pipeline.record("PageViews_home", i);
+        }
+        assertThat(pipeline.droppedCount()).isEqualTo(6);
+
+        MetricTelemetry pageViews = flushAndCapture(1).get("PageViews_home");
+        assertThat(pageViews.getCount()).isEqualTo(4);
+        assertThat(pageViews.getValue()).isEqualTo(1 + 2 + 3 + 4);
+        assertThat(pageViews.getMax()).isEqualTo(4);
+        // publishing reports and resets the drop count
+        assertThat(pipeline.droppedCount()).isZero();
+    }
+
+    @Test
+    void forwardsCallsInOrderWithTheCallersMdc() {
+        pipeline = new TelemetryPipeline(client, 64, NEVER, NEVER);
+        List<String> seen = new CopyOnWriteArrayList<>();
+
+        MDC.put("traceId", "trace-1");
+        MDC.put("requestId", "request-1");
+        pipeline.send(c -> {
+            seen.add(Thread.currentThread().getName() + " " + MDC.get("traceId") + " " + MDC.get("requestId"));
+            c.trackEvent("first");
+        });
+        MDC.clear();
+        pipeline.send(c -> {
+            seen.add(Thread.currentThread().getName() + " " + MDC.get("traceId") + " " + MDC.get("requestId"));
+            c.trackEvent("second");
+        });
+
+        pipeline.flush();
+        verify(client, timeout(5000)).flush();
+
+        assertThat(seen).containsExactly(
+                "telemetry-pipeline trace-1 request-1",
+                "telemetry-pipeline null null");
+        verify(client).trackEvent("first");
+        verify(client).trackEvent("second");
+    }
+
+    @Test
+    void aFailingCallDoesNotStopTheOthers() {
+        pipeline = new TelemetryPipeline(client, 64, NEVER, NEVER);
+
+        pipeline.send(c -> {
+            throw new IllegalStateException("boom");
+        });
+        pipeline.send(c -> c.trackEvent("after"));
+
+        pipeline.flush();
+        verify(client, timeout(5000)).flush();
+        verify(client).trackEvent("after");
+        verify(client, never()).trackMetric(any(MetricTelemetry.class));
+    }
+
+    /**
+     * Flushes, waits until the pipeline thread has flushed the client that many times in total,
+     * and returns the metrics published so far by name, the latest publish winning.
+     */
+    private Map<String, MetricTelemetry> flushAndCapture(int flushes) {
+        pipeline.flush();
+        verify(client, timeout(5000).times(flushes)).flush();
+
+        ArgumentCaptor<MetricTelemetry> metrics = ArgumentCaptor.forClass(MetricTelemetry.class);
+        verify(client, atLeastOnce()).trackMetric(metrics.capture());
+        return metrics.getAllValues().stream().collect(Collectors.toMap(
+                MetricTelemetry::getName, Function.identity(), (earlier, later) -> later));
+    }
+}
@@ -0,0 +1,182 @@
+package com.chtrembl.petstoreapp.telemetry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelemetryRingBufferTest {
+
+    private static final int PRODUCERS = 8;
+    private static final int ITEMS_PER_PRODUCER = 200_000;
+
+    @Test
+    void roundsCapacityUpToAPowerOfTwo() {
+        assertThat(new TelemetryRingBuffer<>(0).capacity()).isEqualTo(2);
+        assertThat(new TelemetryRingBuffer<>(2).capacity()).isEqualTo(2);
+        assertThat(new TelemetryRingBuffer<>(3).capacity()).isEqualTo(4);
+        assertThat(new TelemetryRingBuffer<>(16384).capacity()).isEqualTo(16384);
+    }
+
+    @Test
+    void rejectsOffersWhenFullAndAcceptsThemAgainOnceDrained() {
+        TelemetryRingBuffer<Integer> buffer = new TelemetryRingBuffer<>(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.offer(4)).isFalse();
+
+        assertThat(buffer.poll()).isZero();
+        assertThat(buffer.offer(5)).isTrue();
+        assertThat(buffer.offer(6)).isFalse();
+
+        List<Integer> drained = new ArrayList<>();
+        Integer item;
+        while ((item = buffer.poll()) != null) {
+            drained.add(item);
+        }
+        assertThat(drained).containsExactly(1, 2, 3, 5);
+        assertThat(buffer.poll()).isNull();
+    }
+
+    @Test
+    void staysFirstInFirstOutAcrossWrapAround() {
+        TelemetryRingBuffer<Integer> buffer = new TelemetryRingBuffer<>(4);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+            assertThat(buffer.offer(-i)).isTrue();
+            assertThat(buffer.poll()).isEqualTo(i);
+            assertThat(buffer.poll()).isEqualTo(-i);
+        }
+        assertThat(buffer.poll()).isNull();
+    }
+
+    @Test
+    void concurrentProducersNeitherLoseNorDuplicateItems() throws Exception {
+        // small enough that producers regularly find it full while the consumer drains
+        TelemetryRingBuffer<Integer> buffer = new TelemetryRingBuffer<>(256);
+        BitSet accepted = new BitSet(PRODUCERS * ITEMS_PER_PRODUCER);
+        BitSet consumed = new BitSet(PRODUCERS * ITEMS_PER_PRODUCER);
+        int[] lastPerProducer = new int[PRODUCERS];
+        Arrays.fill(lastPerProducer, -1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean producing = new AtomicBoolean(true);
+        List<Future<BitSet>> producers = new ArrayList<>();
+        long duplicates = 0;
+        long outOfOrder = 0;
+        long dropped = 0;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS)) {
+            for (int p = 0; p < PRODUCERS; p++) {
+                int producer = p;
+                producers.add(executor.submit(() -> {
+                    BitSet offered = new BitSet();
+                    start.await();
+                    for (int i = 0; i < ITEMS_PER_PRODUCER; i++) {
+                        int item = producer * ITEMS_PER_PRODUCER + i;
+                        if (buffer.offer(item)) {
+                            offered.set(item);
+                        }
+                    }
+                    return offered;
+                }));
+            }
+            start.countDown();
+
+            Thread finisher = Thread.ofPlatform().start(() -> {
+                for (Future<BitSet> future : producers) {
+                    try {
+                        future.get(60, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        break;
+                    }
+                }
+                producing.set(false);
+            });
+
+            // single consumer, as in the pipeline
+            while (true) {
+                Integer item = buffer.poll();
+                if (item == null) {
+                    if (!producing.get()) {
+                        item = buffer.poll();
+                        if (item == null) {
+                            break;
+                        }
+                    } else {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                }
+                if (consumed.get(item)) {
+                    duplicates++;
+                }
+                consumed.set(item);
+                int producer = item / ITEMS_PER_PRODUCER;
+                if (item <= lastPerProducer[producer]) {
+                    outOfOrder++;
+                }
+                lastPerProducer[producer] = item;
+            }
+            finisher.join();
+
+            for (Future<BitSet> future : producers) {
+                BitSet offered = future.get();
+                accepted.or(offered);
+                dropped += ITEMS_PER_PRODUCER - offered.cardinality();
+            }
+        }
+
+        assertThat(duplicates).as("items consumed twice").isZero();
+        assertThat(outOfOrder).as("items overtaking an earlier item of the same producer").isZero();
+        assertThat(consumed).as("consumed items are exactly the accepted ones").isEqualTo(accepted);
+        assertThat(accepted.cardinality() + dropped).isEqualTo((long) PRODUCERS * ITEMS_PER_PRODUCER);
+        assertThat(buffer.poll()).isNull();
+    }
+
+    @Test
+    void countsEveryRejectedOfferWhenNothingDrains() throws Exception {
+        TelemetryRingBuffer<Integer> buffer = new TelemetryRingBuffer<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> producers = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS)) {
+            for (int p = 0; p < PRODUCERS; p++) {
+                producers.add(executor.submit(() -> {
+                    int rejected = 0;
+                    start.await();
+                    for (int i = 0; i < 1000; i++) {
+                        if (!buffer.offer(i)) {
+                            rejected++;
+                        }
+                    }
+                    return rejected;
+                }));
+            }
+            start.countDown();
+        }
+
+        int rejected = 0;
+        for (Future<Integer> future : producers) {
+            rejected += future.get();
+        }
+        int held = 0;
+        while (buffer.poll() != null) {
+            held++;
+        }
+        assertThat(held).isEqualTo(1024);
+        assertThat(rejected).isEqualTo(PRODUCERS * 1000 - 1024);
+    }
+}
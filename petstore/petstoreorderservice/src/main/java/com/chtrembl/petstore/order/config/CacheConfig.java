@@ -1,17 +0,0 @@
-package com.chtrembl.petstore.order.config;
-
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-@Configuration
-@EnableCaching
-public class CacheConfig {
-
-    @Bean(name = "cacheManager")
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("orders", "products");
-    }
-}
\ No newline at end of file
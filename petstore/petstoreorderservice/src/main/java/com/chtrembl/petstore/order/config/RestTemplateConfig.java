@@ -1,21 +1,146 @@
 package com.chtrembl.petstore.order.config;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.routing.DefaultRoutePlanner;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.routing.HttpRoute;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
 @Slf4j
 public class RestTemplateConfig {
 
+    @Value("${petstore.http.client.max-total:100}")
+    private int maxTotal;
+
+    @Value("${petstore.http.client.max-per-route:20}")
+    private int maxPerRoute;
+
+    @Value("${petstore.http.client.connect-timeout:PT2S}")
+    private Duration connectTimeout;
+
+    @Value("${petstore.http.client.read-timeout:PT5S}")
+    private Duration readTimeout;
+
+    @Value("${petstore.http.client.pool-acquire-timeout:PT1S}")
+    private Duration poolAcquireTimeout;
+
+    @Value("${petstore.http.client.idle-eviction:PT30S}")
+    private Duration idleEviction;
+
+    @Value("${petstore.service.product.url:http://localhost:8082}")
+    private String productServiceUrl;
+
+    @Value("${petstore.service.product.max-connections:50}")
+    private int productServiceMaxConnections;
+
+    @Value("${petstore.service.product.fetch-timeout:PT5S}")
+    private Duration productFetchTimeout;
+
+    @Bean
+    public PoolingHttpClientConnectionManager httpClientConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        // The product service is the hot route, give it its own limit
+        connectionManager.setMaxPerRoute(routeOf(productServiceUrl), productServiceMaxConnections);
+
+        log.info("HTTP connection pool configured with maxTotal={}, maxPerRoute={}, productServiceMaxConnections={}",
+                maxTotal, maxPerRoute, productServiceMaxConnections);
+        return connectionManager;
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpClientConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(httpClientConnectionManager)
+                .setDefaultRequestConfig(requestConfig(readTimeout))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .build();
+    }
+
+    private RequestConfig requestConfig(Duration responseTimeout) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(poolAcquireTimeout))
+                .setResponseTimeout(Timeout.of(responseTimeout))
+                .build();
+    }
+
+    /**
+     * Asks the client's own route planner for the route of {@code url}, so that the per-route
+     * limit matches the route requests are actually pooled under.
+     */
+    private static HttpRoute routeOf(String url) {
+        return routeOf(URI.create(url));
+    }
+
+    private static HttpRoute routeOf(URI uri) {
+        try {
+            return new DefaultRoutePlanner(DefaultSchemePortResolver.INSTANCE)
+                    .determineRoute(HttpHost.create(uri), HttpClientContext.create());
+        } catch (HttpException e) {
+            throw new IllegalStateException("Cannot determine the HTTP route for " + uri, e);
+        }
+    }
+
+    /**
+     * Publishes leased, pending and available connection gauges under httpcomponents.httpclient.pool.*
+     */
+    @Bean
+    public MeterBinder httpClientPoolMetrics(PoolingHttpClientConnectionManager httpClientConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(httpClientConnectionManager, "order-service");
+    }
+
+    /**
+     * Requests to the product service wait at most {@code fetch-timeout} for response data, so
+     * a hung product service fails the fetch and frees the thread running it.
+     */
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        HttpRoute productServiceRoute = routeOf(productServiceUrl);
+        RequestConfig productServiceRequests = requestConfig(productFetchTimeout);
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            if (productServiceRoute.equals(routeOf(uri))) {
+                context.setRequestConfig(productServiceRequests);
+            }
+            // without a request config the client's default applies
+            return context;
+        });
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
         restTemplate.setInterceptors(List.of(new TracingInterceptor()));
-        log.info("RestTemplate configured with TracingInterceptor for automatic header propagation");
+        log.info("RestTemplate configured with pooled HttpClient and TracingInterceptor for automatic header propagation");
         return restTemplate;
     }
 
@@ -23,4 +148,4 @@ public class RestTemplateConfig {
     public TracingInterceptor tracingInterceptor() {
         return new TracingInterceptor();
     }
-}
\ No newline at end of file
+}
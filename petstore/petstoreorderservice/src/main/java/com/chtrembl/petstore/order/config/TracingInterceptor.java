@@ -9,7 +9,6 @@ import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
-import java.util.UUID;
 
 /**
  * Interceptor for automatic addition of tracing headers to all RestTemplate calls.
@@ -63,7 +62,7 @@ public class TracingInterceptor implements ClientHttpRequestInterceptor {
             request.getHeaders().add(Constants.X_CORRELATION_ID, requestId);
         } else {
             // Generate new if missing
-            String newRequestId = UUID.randomUUID().toString().substring(0, 8);
+            String newRequestId = TraceIds.newRequestId();
             request.getHeaders().add(Constants.X_REQUEST_ID, newRequestId);
             request.getHeaders().add(Constants.X_CORRELATION_ID, newRequestId);
             log.debug("Generated new request ID for RestTemplate call: {}", newRequestId);
@@ -83,7 +82,7 @@ public class TracingInterceptor implements ClientHttpRequestInterceptor {
             request.getHeaders().add(Constants.X_TRACE_ID, traceId);
         } else {
             // Generate new trace ID
-            String newTraceId = UUID.randomUUID().toString().replaceAll("-", "");
+            String newTraceId = TraceIds.newTraceId();
             request.getHeaders().add(Constants.X_TRACE_ID, newTraceId);
             log.debug("Generated new trace ID for RestTemplate call: {}", newTraceId);
         }
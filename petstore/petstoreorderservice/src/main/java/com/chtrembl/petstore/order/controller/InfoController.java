@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -54,12 +55,12 @@ public class InfoController {
     public ResponseEntity<Map<String, String>> serviceInfo() {
         log.info("Incoming GET request to /petstoreorderservice/v2/store/info");
 
-        Map<String, String> response = Map.of(
-                "service", "order service",
-                "version", containerEnvironment.getAppVersion(),
-                "container", containerEnvironment.getContainerHostName(),
-                "ordersCacheSize", String.valueOf(cacheService.getOrdersCacheSize())
-        );
+        Map<String, String> response = new LinkedHashMap<>();
+        response.put("service", "order service");
+        response.put("version", containerEnvironment.getAppVersion());
+        response.put("container", containerEnvironment.getContainerHostName());
+        response.put("ordersCacheSize", String.valueOf(cacheService.getOrdersCacheSize()));
+        response.putAll(cacheService.getOrdersCacheStats());
 
         return ResponseEntity.ok(response);
     }
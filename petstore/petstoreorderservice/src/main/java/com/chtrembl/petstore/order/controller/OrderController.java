@@ -1,11 +1,18 @@
 package com.chtrembl.petstore.order.controller;
 
+import com.chtrembl.petstore.order.model.CartDelta;
+import com.chtrembl.petstore.order.model.CartDeltaResult;
 import com.chtrembl.petstore.order.model.Order;
-import com.chtrembl.petstore.order.model.Product;
+import com.chtrembl.petstore.order.model.OrderBatchGet;
+import com.chtrembl.petstore.order.model.OrderSnapshot;
 import com.chtrembl.petstore.order.service.OrderService;
+import com.chtrembl.petstore.order.service.ProductCatalog;
 import com.chtrembl.petstore.order.service.ProductService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -15,17 +22,24 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/petstoreorderservice/v2")
@@ -37,6 +51,10 @@ public class OrderController {
 
     private final OrderService orderService;
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${petstore.order.batch-get.max-ids:1000}")
+    private int batchGetMaxIds;
 
     @Operation(
             summary = "Place an order for a product",
@@ -57,25 +75,63 @@ public class OrderController {
 
         log.info("Incoming POST request to /petstoreorderservice/v2/store/order with order: {}", order);
 
-        Order updatedOrder = orderService.updateOrder(order);
+        OrderSnapshot updated = orderService.updateOrder(order);
+        Order updatedOrder = updated.toOrder();
 
         // Enrich order with product details from product service
-        List<Product> availableProducts = productService.getAvailableProducts();
-        orderService.enrichOrderWithProductDetails(updatedOrder, availableProducts);
+        ProductCatalog catalog = productService.getProductCatalog();
+        orderService.enrichOrderWithProductDetails(updatedOrder, catalog);
         
         log.info("Successfully processed order: {}", updatedOrder.getId());
 
-        return ResponseEntity.ok(updatedOrder);
+        return ResponseEntity.ok()
+                .eTag(eTag(updated, catalog))
+                .body(updatedOrder);
+    }
+
+    @Operation(
+            summary = "Change line quantities of an order",
+            description = "Applies quantity deltas to the order atomically and returns only the changed lines "
+                    + "with the new order version"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Delta applied",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CartDeltaResult.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid delta or unknown product", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Order not found", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @PatchMapping(value = "store/order/{orderId}", produces = MediaType.APPLICATION_JSON_VALUE,
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<CartDeltaResult> updateOrderLines(
+            @Parameter(description = "ID of the order to update", required = true, example = "68FAE9B1D86B794F0AE0ADD35A437428")
+            @PathVariable("orderId")
+            @Pattern(regexp = "^[0-9A-F]{32}$", message = "Order ID must be a 32-character uppercase hexadecimal string")
+            String orderId,
+            @Parameter(description = "Quantity changes to apply", required = true)
+            @Valid @RequestBody CartDelta delta) {
+
+        log.info("Incoming PATCH request to /petstoreorderservice/v2/store/order/{} with {} operations",
+                orderId, delta.getOperations().size());
+
+        OrderService.CartDeltaOutcome outcome = orderService.applyCartDelta(orderId, delta.getOperations());
+
+        return ResponseEntity.ok()
+                .eTag(eTag(outcome.order(), productService.getProductCatalog()))
+                .body(outcome.toResult());
     }
 
     @Operation(
             summary = "Find order by ID",
-            description = "Returns a single order by its ID with enriched product information"
+            description = "Returns a single order by its ID with enriched product information. "
+                    + "Answers 304 without a body when If-None-Match carries the current ETag."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order found successfully",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = Order.class))),
+            @ApiResponse(responseCode = "304", description = "Order not modified", content = @Content),
             @ApiResponse(responseCode = "404", description = "Order not found", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
@@ -84,18 +140,82 @@ public class OrderController {
             @Parameter(description = "ID of the order to retrieve", required = true, example = "68FAE9B1D86B794F0AE0ADD35A437428")
             @PathVariable("orderId")
             @Pattern(regexp = "^[0-9A-F]{32}$", message = "Order ID must be a 32-character uppercase hexadecimal string")
-            String orderId) {
+            String orderId,
+            WebRequest webRequest) {
 
         log.info("Incoming GET request to /petstoreorderservice/v2/store/order/{}", orderId);
 
-        Order order = orderService.getOrderById(orderId);
+        OrderSnapshot snapshot = orderService.getOrderSnapshot(orderId);
+        ProductCatalog catalog = productService.getProductCatalog();
+
+        // Skip enrichment and serialization when the caller already has this version
+        String eTag = eTag(snapshot, catalog);
+        if (webRequest.checkNotModified(eTag)) {
+            log.info("Order {} not modified at version {}", orderId, snapshot.version());
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
 
         // Enrich order with product details from product service
-        List<Product> availableProducts = productService.getAvailableProducts();
-        orderService.enrichOrderWithProductDetails(order, availableProducts);
+        Order order = snapshot.toOrder();
+        orderService.enrichOrderWithProductDetails(order, catalog);
 
         log.info("Successfully retrieved order: {}", order);
 
-        return ResponseEntity.ok(order);
+        return ResponseEntity.ok().eTag(eTag).body(order);
+    }
+
+    @Operation(
+            summary = "Find orders by IDs",
+            description = "Returns the orders found for up to the configured maximum number of IDs as a JSON array, "
+                    + "in request order. Repeated IDs are returned once, unknown IDs are left out."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders found",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = Order.class)))),
+            @ApiResponse(responseCode = "400", description = "Invalid or too many order IDs", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @PostMapping(value = "store/orders:batchGet", produces = MediaType.APPLICATION_JSON_VALUE,
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> batchGetOrders(
+            @Parameter(description = "IDs of the orders to retrieve", required = true)
+            @Valid @RequestBody OrderBatchGet request) {
+
+        Set<String> orderIds = new LinkedHashSet<>(request.getIds());
+        log.info("Incoming POST request to /petstoreorderservice/v2/store/orders:batchGet for {} orders",
+                orderIds.size());
+        if (orderIds.size() > batchGetMaxIds) {
+            throw new IllegalArgumentException(String.format("At most %d order IDs per request, got %d",
+                    batchGetMaxIds, orderIds.size()));
+        }
+
+        Map<String, OrderSnapshot> orders = orderService.getOrderSnapshots(orderIds);
+        ProductCatalog catalog = productService.getProductCatalog();
+
+        // Orders are built and enriched one at a time while writing, never all at once
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.createGenerator(out)) {
+                json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                json.writeStartArray();
+                for (OrderSnapshot snapshot : orders.values()) {
+                    objectMapper.writeValue(json, orderService.toEnrichedOrder(snapshot, catalog));
+                }
+                json.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * The body depends on the order and on the catalog it was enriched from, so both go into
+     * the entity tag. Versions restart at 1 when an expired order id is used again, the epoch
+     * drawn at creation tells the new order apart from the old one.
+     */
+    private static String eTag(OrderSnapshot order, ProductCatalog catalog) {
+        return "\"" + Long.toHexString(order.epoch()) + "-" + order.version() + "-" + catalog.fingerprint() + "\"";
     }
 }
@@ -0,0 +1,44 @@
+package com.chtrembl.petstore.order.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Quantity changes to apply to the lines of an order in one atomic update")
+public class CartDelta {
+
+	@Valid
+	@NotEmpty(message = "At least one operation is required")
+	@Size(max = 500, message = "At most 500 operations per request")
+	@Schema(description = "Operations, applied in order")
+	private List<Operation> operations;
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	@Schema(description = "Quantity change for one product")
+	public static class Operation {
+
+		@NotNull(message = "Product ID cannot be null")
+		@Schema(description = "Product identifier", example = "1")
+		private Long productId;
+
+		@NotNull(message = "Quantity delta cannot be null")
+		@Min(value = -100, message = "Quantity delta must be at least -100")
+		@Max(value = 100, message = "Quantity delta must be at most 100")
+		@Schema(description = "Amount added to the line quantity, negative to remove", example = "-1")
+		private Integer quantityDelta;
+	}
+}
@@ -0,0 +1,37 @@
+package com.chtrembl.petstore.order.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Lines changed by a cart delta and the resulting order version")
+public class CartDeltaResult {
+
+	@Schema(description = "Order identifier", example = "68FAE9B1D86B794F0AE0ADD35A437428")
+	private String id;
+
+	@Schema(description = "Order version after the update", example = "4")
+	private long version;
+
+	@Schema(description = "Lines whose quantity changed, a quantity of 0 means the line was removed")
+	private List<Line> changed;
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	@Schema(description = "New quantity of a changed line")
+	public static class Line {
+
+		@Schema(description = "Product identifier", example = "1")
+		private long productId;
+
+		@Schema(description = "Quantity after the update", example = "2")
+		private int quantity;
+	}
+}
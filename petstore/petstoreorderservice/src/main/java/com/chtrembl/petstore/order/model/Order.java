@@ -52,6 +52,10 @@ public class Order {
 	@Schema(description = "Whether the order is completed", example = "false")
 	private Boolean complete = false;
 
+	@Schema(description = "Order version, incremented on every change", example = "3",
+			accessMode = Schema.AccessMode.READ_ONLY)
+	private Long version;
+
 	public Boolean getComplete() {
 		return complete != null ? complete : false;
 	}
@@ -0,0 +1,30 @@
+package com.chtrembl.petstore.order.model;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Order ids to look up in one request")
+public class OrderBatchGet {
+
+	/**
+	 * Upper bound of {@code petstore.order.batch-get.max-ids}, which may only lower it.
+	 */
+	public static final int MAX_IDS = 1000;
+
+	@NotEmpty(message = "At least one order ID is required")
+	@Size(max = MAX_IDS, message = "At most " + MAX_IDS + " order IDs per request")
+	@ArraySchema(schema = @Schema(description = "Order identifier", example = "68FAE9B1D86B794F0AE0ADD35A437428"))
+	private List<@Pattern(regexp = "^[0-9A-F]{32}$",
+			message = "Order ID must be a 32-character uppercase hexadecimal string") String> ids;
+}
@@ -0,0 +1,128 @@
+package com.chtrembl.petstore.order.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Immutable state of an order as held by the order store.
+ * <p>
+ * Updates never modify a snapshot in place, they produce a new one with a higher version.
+ * Callers that need a mutable representation (e.g. for enrichment or serialization) get
+ * a fresh {@link Order} through {@link #toOrder()}.
+ * <p>
+ * Lines are kept as two parallel arrays of product id and quantity, line {@code i} being
+ * {@code productIds[i]} and {@code quantities[i]}. Product names and photos are not stored,
+ * they are resolved from the product catalog when the order is read, so a cached line costs
+ * twelve bytes instead of an object graph with its own copies of the catalog strings. The
+ * arrays are never modified after construction and must not be modified by callers.
+ * <p>
+ * The {@code epoch} is a random number drawn when the order is created and kept by every
+ * update. An order that expires or is evicted and is then created again under the same id
+ * starts over at version 1, but with a new epoch, so the two can be told apart.
+ */
+public record OrderSnapshot(String id, String email, Order.Status status, boolean complete,
+							long[] productIds, int[] quantities, long version, long epoch) {
+
+	private static final long[] NO_PRODUCTS = new long[0];
+	private static final int[] NO_QUANTITIES = new int[0];
+
+	public OrderSnapshot {
+		productIds = productIds != null ? productIds : NO_PRODUCTS;
+		quantities = quantities != null ? quantities : NO_QUANTITIES;
+		if (productIds.length != quantities.length) {
+			throw new IllegalArgumentException("Order " + id + " has " + productIds.length
+					+ " product ids but " + quantities.length + " quantities");
+		}
+	}
+
+	public static OrderSnapshot empty(String id) {
+		return new OrderSnapshot(id, null, Order.Status.PLACED, false, NO_PRODUCTS, NO_QUANTITIES, 0, newEpoch());
+	}
+
+	private static long newEpoch() {
+		long epoch;
+		do {
+			epoch = ThreadLocalRandom.current().nextLong();
+		} while (epoch == 0);
+		return epoch;
+	}
+
+	public OrderSnapshot withVersion(long newVersion) {
+		return new OrderSnapshot(id, email, status, complete, productIds, quantities, newVersion, epoch);
+	}
+
+	public OrderSnapshot withoutLines() {
+		return withLines(NO_PRODUCTS, NO_QUANTITIES);
+	}
+
+	/**
+	 * Takes ownership of the given arrays.
+	 */
+	public OrderSnapshot withLines(long[] newProductIds, int[] newQuantities) {
+		return new OrderSnapshot(id, email, status, complete, newProductIds, newQuantities, version, epoch);
+	}
+
+	public OrderSnapshot withQuantity(int line, int quantity) {
+		int[] newQuantities = quantities.clone();
+		newQuantities[line] = quantity;
+		return withLines(productIds, newQuantities);
+	}
+
+	public OrderSnapshot withLineAdded(long productId, int quantity) {
+		long[] newProductIds = Arrays.copyOf(productIds, productIds.length + 1);
+		int[] newQuantities = Arrays.copyOf(quantities, quantities.length + 1);
+		newProductIds[productIds.length] = productId;
+		newQuantities[quantities.length] = quantity;
+		return withLines(newProductIds, newQuantities);
+	}
+
+	public OrderSnapshot withLineRemoved(int line) {
+		long[] newProductIds = new long[productIds.length - 1];
+		int[] newQuantities = new int[quantities.length - 1];
+		System.arraycopy(productIds, 0, newProductIds, 0, line);
+		System.arraycopy(quantities, 0, newQuantities, 0, line);
+		System.arraycopy(productIds, line + 1, newProductIds, line, productIds.length - line - 1);
+		System.arraycopy(quantities, line + 1, newQuantities, line, quantities.length - line - 1);
+		return withLines(newProductIds, newQuantities);
+	}
+
+	public int lineCount() {
+		return productIds.length;
+	}
+
+	/**
+	 * @return the line holding {@code productId}, or -1
+	 */
+	public int indexOf(long productId) {
+		for (int i = 0; i < productIds.length; i++) {
+			if (productIds[i] == productId) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Builds the order with product ids and quantities only; names and photos are filled in
+	 * by enrichment against the product catalog.
+	 */
+	public Order toOrder() {
+		List<Product> products = new ArrayList<>(productIds.length);
+		for (int i = 0; i < productIds.length; i++) {
+			products.add(Product.builder()
+					.id(productIds[i])
+					.quantity(quantities[i])
+					.build());
+		}
+		return Order.builder()
+				.id(id)
+				.email(email)
+				.status(status)
+				.complete(complete)
+				.products(products)
+				.version(version)
+				.build();
+	}
+}
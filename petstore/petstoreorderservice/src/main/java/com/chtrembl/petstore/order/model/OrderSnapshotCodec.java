@@ -0,0 +1,89 @@
+package com.chtrembl.petstore.order.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Binary encoding of an {@link OrderSnapshot} for external stores.
+ * <p>
+ * Layout: format byte, version, epoch, id, email, status, complete flag, line count, then all
+ * product ids followed by all quantities. Strings are modified UTF-8 with a presence flag, the
+ * status is its ordinal or -1. Product names and photos are not part of a snapshot, so a line
+ * costs twelve bytes and a typical cart encodes to under a hundred. Any other format is
+ * rejected.
+ */
+public final class OrderSnapshotCodec {
+
+	private static final byte FORMAT = 3;
+
+	private OrderSnapshotCodec() {
+	}
+
+	public static byte[] encode(OrderSnapshot order) {
+		long[] productIds = order.productIds();
+		int[] quantities = order.quantities();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + productIds.length * 12);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(FORMAT);
+			out.writeLong(order.version());
+			out.writeLong(order.epoch());
+			out.writeUTF(order.id());
+			writeNullable(out, order.email());
+			out.writeByte(order.status() != null ? order.status().ordinal() : -1);
+			out.writeBoolean(order.complete());
+			out.writeInt(productIds.length);
+			for (long productId : productIds) {
+				out.writeLong(productId);
+			}
+			for (int quantity : quantities) {
+				out.writeInt(quantity);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	public static OrderSnapshot decode(byte[] encoded) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+			byte format = in.readByte();
+			if (format != FORMAT) {
+				throw new IllegalArgumentException("Unsupported order encoding format " + format);
+			}
+			long version = in.readLong();
+			long epoch = in.readLong();
+			String id = in.readUTF();
+			String email = readNullable(in);
+			int status = in.readByte();
+			boolean complete = in.readBoolean();
+			int lineCount = in.readInt();
+			long[] productIds = new long[lineCount];
+			int[] quantities = new int[lineCount];
+			for (int i = 0; i < lineCount; i++) {
+				productIds[i] = in.readLong();
+			}
+			for (int i = 0; i < lineCount; i++) {
+				quantities[i] = in.readInt();
+			}
+			return new OrderSnapshot(id, email, status >= 0 ? Order.Status.values()[status] : null,
+					complete, productIds, quantities, version, epoch);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeNullable(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readNullable(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
@@ -0,0 +1,530 @@
+package com.chtrembl.petstore.order.repository;
+
+import com.chtrembl.petstore.order.model.OrderSnapshot;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Persists orders to an append-only log next to a periodic snapshot.
+ * <p>
+ * Only an index is kept in memory: for every order the file and offset of its latest record
+ * and when it expires. {@link #find} reads the record from disk. {@link #save} and
+ * {@link #delete} update the index and queue a log record, so the request path never waits
+ * for the disk; a saved order is held in memory only until the background writer has appended
+ * it. The writer appends everything queued since its last run with a single write and fsync
+ * (group commit) every {@code flush-interval}.
+ * <p>
+ * Orders expire here like in the order store, after {@code idle-timeout} without access or
+ * {@code completed-ttl} after they were completed, whether the store still holds them or not.
+ * Once the log holds more than {@code compact-threshold} records, and every
+ * {@code compact-interval}, the live orders are written to a snapshot of a new generation of
+ * files and expired ones are dropped. On startup the latest snapshot is loaded and its log
+ * replayed on top of it, so an order survives a restart unless it was saved within the last
+ * flush interval before a crash. That only holds if {@code petstore.order.repository.dir}
+ * outlives the process; in a container it has to be a mounted volume.
+ */
+@Component
+// only the local order store persists through a repository
+@ConditionalOnExpression("'${petstore.order.store.type:local}' == 'local' and '${petstore.order.repository.type:log}' == 'log'")
+@Slf4j
+public class LogOrderRepository implements OrderRepository {
+
+    private static final Pattern GENERATION_FILE = Pattern.compile("orders-(\\d+)\\.(snapshot|log)(\\.tmp)?");
+    private static final String PUT = "PUT";
+    private static final String DELETE = "DEL";
+    // layout of records and their orders, kept in step with OrderSnapshotCodec
+    private static final int FORMAT = 3;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader snapshotReader;
+    private final Path directory;
+    private final Duration flushInterval;
+    private final int compactThreshold;
+    private final long compactIntervalMillis;
+    private final long idleTimeoutMillis;
+    private final long completedTtlMillis;
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Write> queued = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-log-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only touched by the writer thread after startup
+    private long generation;
+    private Path logFile;
+    private FileChannel logChannel;
+    private int logRecords;
+    private long nextCompaction;
+    private List<Write> unwritten = new ArrayList<>();
+    private boolean lastWriteFailed;
+
+    public LogOrderRepository(ObjectMapper objectMapper,
+                              @Value("${petstore.order.repository.dir:/var/lib/petstore/orders}") Path directory,
+                              @Value("${petstore.order.repository.flush-interval:PT0.1S}") Duration flushInterval,
+                              @Value("${petstore.order.repository.compact-threshold:50000}") int compactThreshold,
+                              @Value("${petstore.order.repository.compact-interval:PT1H}") Duration compactInterval,
+                              @Value("${petstore.order.store.idle-timeout:PT12H}") Duration idleTimeout,
+                              @Value("${petstore.order.store.completed-ttl:PT15M}") Duration completedTtl) {
+        this.objectMapper = objectMapper;
+        // a field this version does not know means data it would silently lose
+        this.snapshotReader = objectMapper.readerFor(OrderSnapshot.class)
+                .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.directory = directory;
+        this.flushInterval = flushInterval;
+        this.compactThreshold = compactThreshold;
+        this.compactIntervalMillis = compactInterval.toMillis();
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.completedTtlMillis = completedTtl.toMillis();
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        Files.createDirectories(directory);
+        long started = System.nanoTime();
+        recover();
+        compact();
+
+        long interval = flushInterval.toNanos();
+        writer.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.NANOSECONDS);
+        log.info("Recovered {} orders from {} in {} ms, flushing every {}",
+                index.size(), directory, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), flushInterval);
+    }
+
+    @Override
+    public Optional<OrderSnapshot> find(String orderId) {
+        while (true) {
+            Entry entry = index.get(orderId);
+            long now = System.currentTimeMillis();
+            if (entry == null || entry.expiresAt <= now) {
+                return Optional.empty();
+            }
+            touch(entry, now);
+            if (entry.pending != null) {
+                return Optional.of(entry.pending);
+            }
+            try {
+                return Optional.of(read(entry).order());
+            } catch (NoSuchFileException e) {
+                // compaction moved the order to a new generation and removed the old files
+                if (index.get(orderId) == entry) {
+                    throw new UncheckedIOException("Order file of " + orderId + " is missing", e);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read order " + orderId, e);
+            }
+        }
+    }
+
+    @Override
+    public void touch(String orderId) {
+        Entry entry = index.get(orderId);
+        if (entry != null) {
+            touch(entry, System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public void save(OrderSnapshot order) {
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(order, null, 0, 0, order.complete(), now + ttl(order.complete()));
+        index.put(order.id(), entry);
+        queued.add(new Write(LogRecord.put(order, now), entry));
+    }
+
+    @Override
+    public void delete(String orderId) {
+        if (index.remove(orderId) != null) {
+            queued.add(new Write(LogRecord.delete(orderId, System.currentTimeMillis()), null));
+        }
+    }
+
+    @Override
+    public long size() {
+        return index.size();
+    }
+
+    @PreDestroy
+    void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        try {
+            logChannel.close();
+        } catch (IOException e) {
+            log.warn("Could not close order log: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The idle timeout restarts on every access; completed orders expire a fixed time after
+     * they were completed.
+     */
+    private void touch(Entry entry, long now) {
+        if (!entry.complete) {
+            entry.expiresAt = now + idleTimeoutMillis;
+        }
+    }
+
+    private long ttl(boolean complete) {
+        return complete ? completedTtlMillis : idleTimeoutMillis;
+    }
+
+    /**
+     * Appends all queued records with one write and one fsync, then points the index at them.
+     * Records of a failed write are kept and retried on the next run, ahead of anything queued
+     * since.
+     */
+    private synchronized void flush() {
+        try {
+            Write write;
+            while ((write = queued.poll()) != null) {
+                unwritten.add(write);
+            }
+            if (!unwritten.isEmpty()) {
+                append();
+            }
+            if (logRecords > compactThreshold || System.currentTimeMillis() >= nextCompaction) {
+                compact();
+            }
+        } catch (Exception e) {
+            // never let an exception cancel the scheduled flush
+            lastWriteFailed = !unwritten.isEmpty();
+            log.error("Failed to write order log, {} records pending: {}", unwritten.size(), e.getMessage(), e);
+        }
+    }
+
+    private void append() throws IOException {
+        long start = logChannel.position();
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(unwritten.size() * 256);
+        if (lastWriteFailed) {
+            // terminate a line a failed write may have left half written
+            batch.write('\n');
+        }
+        long[] offsets = new long[unwritten.size()];
+        int[] lengths = new int[unwritten.size()];
+        for (int i = 0; i < unwritten.size(); i++) {
+            byte[] line = objectMapper.writeValueAsBytes(unwritten.get(i).record());
+            offsets[i] = start + batch.size();
+            lengths[i] = line.length;
+            batch.write(line);
+            batch.write('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(batch.toByteArray());
+        while (bytes.hasRemaining()) {
+            logChannel.write(bytes);
+        }
+        logChannel.force(false);
+        lastWriteFailed = false;
+
+        for (int i = 0; i < unwritten.size(); i++) {
+            Write written = unwritten.get(i);
+            if (written.entry() != null) {
+                // unless the order changed or went away meanwhile
+                index.replace(written.record().id(), written.entry(), written.entry().at(logFile, offsets[i], lengths[i]));
+            }
+        }
+        logRecords += unwritten.size();
+        log.debug("Flushed {} order records to {}", unwritten.size(), logFile.getFileName());
+        unwritten = new ArrayList<>();
+    }
+
+    /**
+     * Writes the live orders as the snapshot of a new generation, starts its empty log, points
+     * the index at the snapshot and removes the files of older generations. Expired orders are
+     * left out. Orders still queued are written to the snapshot too, but keep their place in
+     * the queue and go to the new log; replaying them over a snapshot that already holds their
+     * effect is harmless since records of one order are in mutation order.
+     */
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        long next = generation + 1;
+        Path snapshot = directory.resolve(snapshotName(next));
+        Path compacted = directory.resolve(snapshotName(next) + ".tmp");
+        Map<String, Entry[]> moved = new HashMap<>();
+        int expired = 0;
+        try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16)) {
+            long offset = 0;
+            for (Map.Entry<String, Entry> indexed : index.entrySet()) {
+                Entry entry = indexed.getValue();
+                if (entry.expiresAt <= now) {
+                    if (index.remove(indexed.getKey(), entry)) {
+                        expired++;
+                    }
+                    continue;
+                }
+                OrderSnapshot order = entry.pending != null ? entry.pending : read(entry).order();
+                long lastActivity = entry.expiresAt - ttl(entry.complete);
+                byte[] line = objectMapper.writeValueAsBytes(LogRecord.put(order, lastActivity));
+                out.write(line);
+                out.write('\n');
+                if (entry.pending == null) {
+                    moved.put(indexed.getKey(), new Entry[]{entry, entry.at(snapshot, offset, line.length)});
+                }
+                offset += line.length + 1;
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(compacted, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Path nextLog = directory.resolve(logName(next));
+        FileChannel nextLogChannel = FileChannel.open(nextLog, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        moved.forEach((id, entries) -> index.replace(id, entries[0], entries[1]));
+        if (logChannel != null) {
+            logChannel.close();
+        }
+        logChannel = nextLogChannel;
+        logFile = nextLog;
+        generation = next;
+        logRecords = 0;
+        nextCompaction = now + compactIntervalMillis;
+        removeOlderGenerations();
+        log.info("Compacted orders into generation {} with {} orders, {} expired orders dropped",
+                generation, index.size(), expired);
+    }
+
+    /**
+     * Loads the newest snapshot and replays its log.
+     */
+    private void recover() throws IOException {
+        long latest = -1;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = GENERATION_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    long fileGeneration = Long.parseLong(matcher.group(1));
+                    // a log or temporary file without its snapshot is never complete, skip past it
+                    generation = Math.max(generation, fileGeneration);
+                    if ("snapshot".equals(matcher.group(2)) && matcher.group(3) == null) {
+                        latest = Math.max(latest, fileGeneration);
+                    }
+                }
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        if (latest >= 0) {
+            replay(directory.resolve(snapshotName(latest)), now);
+            replay(directory.resolve(logName(latest)), now);
+        }
+    }
+
+    private void replay(Path file, long now) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        int replayed = 0;
+        int corrupt = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            long offset = 0;
+            long lineStart = 0;
+            int b;
+            while (true) {
+                b = in.read();
+                if (b == '\n' || b == -1) {
+                    if (line.size() > 0) {
+                        try {
+                            apply(parse(line.toByteArray()), file, lineStart, line.size(), now);
+                            replayed++;
+                        } catch (IOException e) {
+                            // a torn last batch after a crash
+                            corrupt++;
+                        }
+                        line.reset();
+                    }
+                    if (b == -1) {
+                        break;
+                    }
+                    lineStart = offset + 1;
+                } else {
+                    line.write(b);
+                }
+                offset++;
+            }
+        }
+        if (corrupt > 0) {
+            log.warn("Skipped {} unreadable order records in {}", corrupt, file.getFileName());
+        }
+        log.debug("Replayed {} order records from {}", replayed, file.getFileName());
+    }
+
+    private void apply(LogRecord record, Path file, long offset, int length, long now) {
+        if (PUT.equals(record.op())) {
+            boolean complete = record.order().complete();
+            long expiresAt = record.at() + ttl(complete);
+            if (expiresAt > now) {
+                index.put(record.id(), new Entry(null, file, offset, length, complete, expiresAt));
+            } else {
+                index.remove(record.id());
+            }
+        } else if (DELETE.equals(record.op())) {
+            index.remove(record.id());
+        }
+    }
+
+    private LogRecord read(Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        try (FileChannel channel = FileChannel.open(entry.file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+                    throw new EOFException("Order record at " + entry.offset + " of " + entry.file + " is truncated");
+                }
+            }
+        }
+        return parse(buffer.array());
+    }
+
+    /**
+     * @throws IOException if the line is not JSON, as a torn write leaves it
+     * @throws IllegalStateException if it is a record this version cannot read
+     */
+    private LogRecord parse(byte[] line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        if (!node.isObject()) {
+            throw new JsonParseException(null, "Not an order record: " + node.getNodeType());
+        }
+        int format = required(node, "format").asInt();
+        if (format != FORMAT) {
+            throw new IllegalStateException("Order record format " + format + " is not the supported "
+                    + FORMAT + ", refusing to start on data of another version");
+        }
+        JsonNode order = node.get("order");
+        return new LogRecord(FORMAT, required(node, "op").asText(), required(node, "id").asText(),
+                order != null && !order.isNull() ? readOrder(order) : null, required(node, "at").asLong());
+    }
+
+    /**
+     * Anything but the current form of an order fails rather than load as an empty cart.
+     */
+    private OrderSnapshot readOrder(JsonNode order) {
+        try {
+            return snapshotReader.treeToValue(order, OrderSnapshot.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unsupported order record: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static JsonNode required(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            throw new IllegalStateException("Order record without " + field + ": " + node);
+        }
+        return value;
+    }
+
+    private void removeOlderGenerations() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                Matcher matcher = GENERATION_FILE.matcher(name);
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) < generation) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static String snapshotName(long generation) {
+        return "orders-" + generation + ".snapshot";
+    }
+
+    private static String logName(long generation) {
+        return "orders-" + generation + ".log";
+    }
+
+    /**
+     * @param format layout of the record and its order, {@link #FORMAT} for everything written now
+     * @param at     when the order was last saved or accessed, in epoch milliseconds
+     */
+    private record LogRecord(int format, String op, String id, OrderSnapshot order, long at) {
+
+        static LogRecord put(OrderSnapshot order, long at) {
+            return new LogRecord(FORMAT, PUT, order.id(), order, at);
+        }
+
+        static LogRecord delete(String orderId, long at) {
+            return new LogRecord(FORMAT, DELETE, orderId, null, at);
+        }
+    }
+
+    private record Write(LogRecord record, Entry entry) {
+    }
+
+    /**
+     * Where the latest record of an order is. A saved order is {@code pending} until the writer
+     * has appended it, after that only its location is kept.
+     */
+    private static final class Entry {
+        private final OrderSnapshot pending;
+        private final Path file;
+        private final long offset;
+        private final int length;
+        private final boolean complete;
+        private volatile long expiresAt;
+
+        private Entry(OrderSnapshot pending, Path file, long offset, int length, boolean complete, long expiresAt) {
+            this.pending = pending;
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+            this.complete = complete;
+            this.expiresAt = expiresAt;
+        }
+
+        private Entry at(Path newFile, long newOffset, int newLength) {
+            return new Entry(null, newFile, newOffset, newLength, complete, expiresAt);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.chtrembl.petstore.order.repository;
+
+import com.chtrembl.petstore.order.model.OrderSnapshot;
+
+import java.util.Optional;
+
+/**
+ * Durable home of orders behind the {@link com.chtrembl.petstore.order.service.LocalOrderStore}.
+ * <p>
+ * The store calls {@link #save} and {@link #delete} from inside its per-order atomic update,
+ * so calls for one order arrive in mutation order. Implementations must not block those calls
+ * on I/O; they are expected to persist in the background.
+ * <p>
+ * Orders expire here on the same terms as in the store, so an order the store evicted for size
+ * does not stay forever.
+ */
+public interface OrderRepository {
+
+    /**
+     * @return the order, unless it does not exist or has expired
+     */
+    Optional<OrderSnapshot> find(String orderId);
+
+    /**
+     * Restarts the idle timeout of the order; the store calls it on every read, so it must not
+     * do I/O.
+     */
+    default void touch(String orderId) {
+    }
+
+    void save(OrderSnapshot order);
+
+    void delete(String orderId);
+
+    long size();
+}
@@ -0,0 +1,39 @@
+package com.chtrembl.petstore.order.repository;
+
+import com.chtrembl.petstore.order.model.OrderSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Keeps nothing, orders only live in the order store and are lost on restart.
+ */
+@Component
+@ConditionalOnProperty(name = "petstore.order.repository.type", havingValue = "none")
+@Slf4j
+public class TransientOrderRepository implements OrderRepository {
+
+    public TransientOrderRepository() {
+        log.info("Order persistence disabled, orders are kept in memory only");
+    }
+
+    @Override
+    public Optional<OrderSnapshot> find(String orderId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void save(OrderSnapshot order) {
+    }
+
+    @Override
+    public void delete(String orderId) {
+    }
+
+    @Override
+    public long size() {
+        return 0;
+    }
+}
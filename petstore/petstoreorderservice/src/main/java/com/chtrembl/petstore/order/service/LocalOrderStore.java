@@ -0,0 +1,156 @@
+package com.chtrembl.petstore.order.service;
+
+import com.chtrembl.petstore.order.model.OrderSnapshot;
+import com.chtrembl.petstore.order.repository.OrderRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded in-memory {@link OrderStore} for a single order service instance.
+ * <p>
+ * Entries are weighed by their number of line items and evicted once the total weight
+ * exceeds the configured maximum. Each entry expires on its own after a period without
+ * access, completed orders expire sooner, so carts age out individually instead of being
+ * wiped all at once.
+ * <p>
+ * Values are immutable {@link OrderSnapshot}s. {@link #update} runs the mutation atomically
+ * for its key only, so concurrent updates to one order are serialized while updates to
+ * different orders do not contend.
+ * <p>
+ * Every stored change is handed to the {@link OrderRepository}, and orders missing here are
+ * loaded back from it, so evicting an order for size only drops it from memory. Reads are
+ * reported to the repository, which applies the same idle and completed timeouts on its own
+ * and so expires orders this store no longer holds. Orders that expire here are deleted from
+ * the repository right away.
+ */
+@Component
+@ConditionalOnProperty(name = "petstore.order.store.type", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class LocalOrderStore implements OrderStore {
+
+    private final Cache<String, OrderSnapshot> orders;
+    private final OrderRepository repository;
+
+    public LocalOrderStore(OrderRepository repository,
+                           @Value("${petstore.order.store.max-weight:100000}") long maxWeight,
+                           @Value("${petstore.order.store.idle-timeout:PT12H}") Duration idleTimeout,
+                           @Value("${petstore.order.store.completed-ttl:PT15M}") Duration completedTtl) {
+        this.repository = repository;
+        this.orders = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String id, OrderSnapshot order) -> weigh(order))
+                .expireAfter(new OrderExpiry(idleTimeout, completedTtl))
+                // runs atomically with the removal, so a concurrent load cannot bring the order back
+                .evictionListener((String id, OrderSnapshot order, RemovalCause cause) -> {
+                    if (cause == RemovalCause.EXPIRED) {
+                        repository.delete(id);
+                    }
+                })
+                .recordStats()
+                .build();
+
+        log.info("Order store configured with maxWeight={}, idleTimeout={}, completedTtl={}",
+                maxWeight, idleTimeout, completedTtl);
+    }
+
+    @Override
+    public Optional<OrderSnapshot> get(String orderId) {
+        OrderSnapshot order = orders.get(orderId, id -> repository.find(id).orElse(null));
+        if (order != null) {
+            repository.touch(orderId);
+        }
+        return Optional.ofNullable(order);
+    }
+
+    /**
+     * Runs atomically for the order's key only, so concurrent updates of one order are serialized
+     * without a retry.
+     */
+    @Override
+    public OrderSnapshot update(String orderId, UnaryOperator<OrderSnapshot> mutation) {
+        return orders.asMap().compute(orderId, (id, current) -> {
+            OrderSnapshot stored = current != null ? current : repository.find(id).orElse(null);
+            OrderSnapshot base = stored != null ? stored : OrderSnapshot.empty(id);
+            OrderSnapshot next = mutation.apply(base);
+            if (next == stored) {
+                return stored;
+            }
+            OrderSnapshot versioned = next.withVersion(base.version() + 1);
+            repository.save(versioned);
+            return versioned;
+        });
+    }
+
+    @Override
+    public void remove(String orderId) {
+        orders.asMap().compute(orderId, (id, current) -> {
+            repository.delete(id);
+            return null;
+        });
+    }
+
+    @Override
+    public long size() {
+        return orders.estimatedSize();
+    }
+
+    @Override
+    public Map<String, String> stats() {
+        CacheStats stats = orders.stats();
+        return Map.of(
+                "ordersCacheHits", String.valueOf(stats.hitCount()),
+                "ordersCacheMisses", String.valueOf(stats.missCount()),
+                "ordersCacheEvictions", String.valueOf(stats.evictionCount()),
+                "ordersCacheEvictedWeight", String.valueOf(stats.evictionWeight()),
+                "ordersCacheWeight", String.valueOf(weightedSize()),
+                "ordersPersisted", String.valueOf(repository.size())
+        );
+    }
+
+    private long weightedSize() {
+        return orders.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    /**
+     * One unit per order plus one per line item, so an empty cart still counts.
+     */
+    private static int weigh(OrderSnapshot order) {
+        return 1 + order.lineCount();
+    }
+
+    private record OrderExpiry(Duration idleTimeout, Duration completedTtl) implements Expiry<String, OrderSnapshot> {
+
+        @Override
+        public long expireAfterCreate(String id, OrderSnapshot order, long currentTime) {
+            return ttl(order);
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, OrderSnapshot order, long currentTime, long currentDuration) {
+            return ttl(order);
+        }
+
+        @Override
+        public long expireAfterRead(String id, OrderSnapshot order, long currentTime, long currentDuration) {
+            return order.complete() ? currentDuration : idleTimeout.toNanos();
+        }
+
+        private long ttl(OrderSnapshot order) {
+            return order.complete() ? completedTtl.toNanos() : idleTimeout.toNanos();
+        }
+    }
+}
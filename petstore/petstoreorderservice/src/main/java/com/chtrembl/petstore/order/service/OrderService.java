@@ -1,66 +1,64 @@
 package com.chtrembl.petstore.order.service;
 
 import com.chtrembl.petstore.order.exception.OrderNotFoundException;
+import com.chtrembl.petstore.order.model.CartDelta;
+import com.chtrembl.petstore.order.model.CartDeltaResult;
 import com.chtrembl.petstore.order.model.Order;
+import com.chtrembl.petstore.order.model.OrderSnapshot;
 import com.chtrembl.petstore.order.model.Product;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class OrderService {
 
-    private static final String ORDERS = "orders";
-    private final CacheManager cacheManager;
-    private final ProductService productService;
+    private static final int MAX_QUANTITY = 10;
 
-    @Cacheable(ORDERS)
-    public Order createOrder(String orderId) {
-        log.info("Creating new order with id: {} and caching it", orderId);
-        return Order.builder()
-                .id(orderId)
-                .products(new ArrayList<>())
-                .status(Order.Status.PLACED)
-                .complete(false)
-                .build();
-    }
+    private final OrderStore orderStore;
+    private final ProductService productService;
 
     /**
      * Retrieves an existing order by ID. Does NOT create a new order if not found.
      *
      * @param orderId the order ID to retrieve
-     * @return the existing order
+     * @return a copy of the existing order
      * @throws OrderNotFoundException if order does not exist
      */
     public Order getOrderById(String orderId) {
-        log.info("Retrieving order from cache: {}", orderId);
+        return getOrderSnapshot(orderId).toOrder();
+    }
+
+    /**
+     * Retrieves the stored state of an existing order, without building an {@link Order} from it.
+     *
+     * @throws OrderNotFoundException if order does not exist
+     */
+    public OrderSnapshot getOrderSnapshot(String orderId) {
+        log.info("Retrieving order from store: {}", orderId);
 
         // Validate orderId (not covered by Bean Validation for path variables)
         if (orderId == null || orderId.trim().isEmpty()) {
             throw new IllegalArgumentException("Order ID cannot be null or empty");
         }
 
-        // Try to get from cache
-        Cache cache = cacheManager.getCache(ORDERS);
-        if (cache != null) {
-            Cache.ValueWrapper wrapper = cache.get(orderId);
-            if (wrapper != null) {
-                Order cachedOrder = (Order) wrapper.get();
-                if (cachedOrder != null) {
-                    log.info("Found existing order: {}", orderId);
-                    return cachedOrder;
-                }
-            }
+        // Try to get from store
+        Optional<OrderSnapshot> storedOrder = orderStore.get(orderId);
+        if (storedOrder.isPresent()) {
+            log.info("Found existing order: {}", orderId);
+            return storedOrder.get();
         }
 
         // Order not found - throw exception instead of creating new one
@@ -68,101 +66,217 @@ public class OrderService {
         throw new OrderNotFoundException("Order with ID " + orderId + " not found");
     }
 
+    /**
+     * Looks up several orders in one store round trip. Unknown ids are left out.
+     *
+     * @return the found orders keyed by id, in request order
+     */
+    public Map<String, OrderSnapshot> getOrderSnapshots(Collection<String> orderIds) {
+        Map<String, OrderSnapshot> found = orderStore.getAll(orderIds);
+        log.info("Found {} of {} requested orders", found.size(), orderIds.size());
+        return found;
+    }
+
+    /**
+     * Builds the order with product names and photos taken from {@code catalog}. Unlike
+     * {@link #enrichOrderWithProductDetails} it does not log per order, for bulk reads.
+     */
+    public Order toEnrichedOrder(OrderSnapshot snapshot, ProductCatalog catalog) {
+        Order order = snapshot.toOrder();
+        for (Product orderProduct : order.getProducts()) {
+            Product availableProduct = catalog.get(orderProduct.getId());
+            if (availableProduct != null) {
+                orderProduct.setName(availableProduct.getName());
+                orderProduct.setPhotoURL(availableProduct.getPhotoURL());
+            }
+        }
+        return order;
+    }
+
     /**
      * Gets an existing order or creates a new one if it doesn't exist.
-     * Used internally for order updates.
      */
     public Order getOrCreateOrder(String orderId) {
         log.info("Getting or creating order: {}", orderId);
+        return orderStore.update(orderId, UnaryOperator.identity()).toOrder();
+    }
 
-        // Try to get from cache first
-        Cache cache = cacheManager.getCache(ORDERS);
-        if (cache != null) {
-            Cache.ValueWrapper wrapper = cache.get(orderId);
-            if (wrapper != null) {
-                Order cachedOrder = (Order) wrapper.get();
-                if (cachedOrder != null) {
-                    log.info("Found existing order for update: {}", orderId);
-                    return cachedOrder;
-                }
-            }
+    /**
+     * Applies the incoming order to the stored one. The mutation runs atomically per order id,
+     * so concurrent updates of the same cart cannot lose quantities.
+     *
+     * @return the stored order, whose epoch and version identify this state of it
+     */
+    public OrderSnapshot updateOrder(Order order) {
+        log.info("Updating order: {}", order.getId());
+
+        // Validate products exist before processing order
+        if (order.getProducts() != null && !order.getProducts().isEmpty()) {
+            validateProductsExist(order.getProducts(), productService.getProductCatalog());
         }
 
-        // Create new order if not found
-        log.info("Creating new order for update: {}", orderId);
-        Order newOrder = createOrder(orderId);
-        if (cache != null) {
-            cache.put(orderId, newOrder);
+        return orderStore.update(order.getId(), current -> applyUpdate(current, order));
+    }
+
+    /**
+     * Applies quantity deltas to the order's lines in one atomic update. Deltas are applied in
+     * request order and each result is kept between 0 and the maximum quantity; a line that
+     * reaches 0 is removed, a product not yet in the order is added if its quantity ends up
+     * positive. Only existing orders are changed, an order is created by placing it.
+     *
+     * @return the lines whose quantity changed and the resulting order
+     * @throws OrderNotFoundException if order does not exist
+     */
+    public CartDeltaOutcome applyCartDelta(String orderId, List<CartDelta.Operation> operations) {
+        log.info("Applying {} cart operations to order {}", operations.size(), orderId);
+
+        ProductCatalog catalog = productService.getProductCatalog();
+        List<Long> missingProductIds = new ArrayList<>();
+        for (CartDelta.Operation operation : operations) {
+            if (!catalog.contains(operation.getProductId())) {
+                missingProductIds.add(operation.getProductId());
+            }
+        }
+        if (!missingProductIds.isEmpty()) {
+            String errorMessage = String.format("Products with IDs %s are not available or do not exist",
+                    missingProductIds);
+            log.warn("Product validation failed for cart delta: {}", errorMessage);
+            throw new IllegalArgumentException(errorMessage);
         }
 
-        return newOrder;
+        // the store may run the mutation more than once, the last run is the one stored
+        AtomicReference<List<CartDeltaResult.Line>> changed = new AtomicReference<>(List.of());
+        OrderSnapshot updated = orderStore.update(orderId, current -> {
+            // stored orders start at version 1, version 0 is the empty order the store starts from;
+            // throwing here leaves the store untouched
+            if (current.version() == 0) {
+                throw new OrderNotFoundException("Order with ID " + orderId + " not found");
+            }
+            if (current.complete()) {
+                throw new IllegalArgumentException("Order " + orderId + " is already complete");
+            }
+            List<CartDeltaResult.Line> lines = new ArrayList<>();
+            OrderSnapshot next = applyDeltas(current, operations, lines);
+            changed.set(lines);
+            return next;
+        });
+
+        log.info("Cart delta changed {} lines of order {}, now at version {}",
+                changed.get().size(), orderId, updated.version());
+        return new CartDeltaOutcome(updated, changed.get());
     }
 
-    public Order updateOrder(Order order) {
-        log.info("Updating order: {}", order.getId());
+    /**
+     * The order after a cart delta and the lines it changed.
+     */
+    public record CartDeltaOutcome(OrderSnapshot order, List<CartDeltaResult.Line> changed) {
 
-        // Validate products exist before processing order
-        if (order.getProducts() != null && !order.getProducts().isEmpty()) {
-            List<Product> availableProducts = productService.getAvailableProducts();
-            validateProductsExist(order.getProducts(), availableProducts);
+        public CartDeltaResult toResult() {
+            return new CartDeltaResult(order.id(), order.version(), changed);
         }
+    }
 
-        // Use getOrCreateOrder for updates (allows creation)
-        Order cachedOrder = getOrCreateOrder(order.getId());
+    /**
+     * Single pass over the current lines: quantities of existing lines are updated in a copy of
+     * the quantity array, new products are collected separately and appended at the end.
+     */
+    private OrderSnapshot applyDeltas(OrderSnapshot current, List<CartDelta.Operation> operations,
+                                      List<CartDeltaResult.Line> changed) {
+        long[] productIds = current.productIds();
+        int[] quantities = current.quantities().clone();
+        Map<Long, Integer> lineOf = new HashMap<>(productIds.length * 2);
+        for (int i = 0; i < productIds.length; i++) {
+            lineOf.putIfAbsent(productIds[i], i);
+        }
 
-        // Update basic fields
-        cachedOrder.setEmail(order.getEmail());
+        Map<Long, Integer> added = new LinkedHashMap<>();
+        for (CartDelta.Operation operation : operations) {
+            long productId = operation.getProductId();
+            Integer line = lineOf.get(productId);
+            if (line != null) {
+                quantities[line] = clampQuantity(quantities[line] + operation.getQuantityDelta());
+            } else {
+                added.put(productId, clampQuantity(added.getOrDefault(productId, 0) + operation.getQuantityDelta()));
+            }
+        }
 
-        // Update status only if new status is provided
-        if (order.getStatus() != null) {
-            cachedOrder.setStatus(order.getStatus());
+        int kept = 0;
+        for (int i = 0; i < productIds.length; i++) {
+            if (quantities[i] != current.quantities()[i]) {
+                changed.add(new CartDeltaResult.Line(productIds[i], quantities[i]));
+            }
+            if (quantities[i] > 0) {
+                kept++;
+            }
+        }
+        added.values().removeIf(quantity -> quantity == 0);
+        added.forEach((productId, quantity) -> changed.add(new CartDeltaResult.Line(productId, quantity)));
+        if (changed.isEmpty()) {
+            return current;
         }
 
+        long[] newProductIds = new long[kept + added.size()];
+        int[] newQuantities = new int[newProductIds.length];
+        int next = 0;
+        for (int i = 0; i < productIds.length; i++) {
+            if (quantities[i] > 0) {
+                newProductIds[next] = productIds[i];
+                newQuantities[next++] = quantities[i];
+            }
+        }
+        for (Map.Entry<Long, Integer> entry : added.entrySet()) {
+            newProductIds[next] = entry.getKey();
+            newQuantities[next++] = entry.getValue();
+        }
+        return current.withLines(newProductIds, newQuantities);
+    }
+
+    private static int clampQuantity(int quantity) {
+        return Math.max(0, Math.min(MAX_QUANTITY, quantity));
+    }
+
+    private OrderSnapshot applyUpdate(OrderSnapshot current, Order order) {
+        // Update status only if new status is provided
+        Order.Status status = order.getStatus() != null ? order.getStatus() : current.status();
+
         // Handle completion status
         Boolean isComplete = order.getComplete();
+        OrderSnapshot withProducts;
         if (isComplete != null && isComplete) {
             log.info("Completing order {} - clearing products", order.getId());
-            cachedOrder.setProducts(new ArrayList<>());
-            cachedOrder.setComplete(true);
+            withProducts = current.withoutLines();
         } else {
-            cachedOrder.setComplete(isComplete != null ? isComplete : false);
-            updateOrderProducts(cachedOrder, order.getProducts());
+            withProducts = updateOrderProducts(current, order.getProducts());
         }
 
-        // Explicitly update cache
-        Cache cache = cacheManager.getCache(ORDERS);
-        if (cache != null) {
-            cache.put(order.getId(), cachedOrder);
-        }
-
-        return cachedOrder;
+        return new OrderSnapshot(current.id(), order.getEmail(), status, isComplete != null && isComplete,
+                withProducts.productIds(), withProducts.quantities(), current.version(), current.epoch());
     }
 
     /**
-     * Validates that all products in the order exist in the available products list
+     * Validates that all products in the order exist in the product catalog
      *
      * @param orderProducts List of products from the order
-     * @param availableProducts List of available products from Product Service
+     * @param catalog Available products from Product Service, indexed by id
      * @throws IllegalArgumentException if any product is not found
      */
-    private void validateProductsExist(List<Product> orderProducts, List<Product> availableProducts) {
+    private void validateProductsExist(List<Product> orderProducts, ProductCatalog catalog) {
         if (orderProducts == null || orderProducts.isEmpty()) {
             return;
         }
 
-        List<Long> requestedProductIds = orderProducts.stream()
-                .map(Product::getId)
-                .filter(id -> id != null)
-                .collect(Collectors.toList());
-
-        List<Long> availableProductIds = availableProducts.stream()
-                .map(Product::getId)
-                .filter(id -> id != null)
-                .collect(Collectors.toList());
-
-        List<Long> missingProductIds = requestedProductIds.stream()
-                .filter(id -> !availableProductIds.contains(id))
-                .collect(Collectors.toList());
+        List<Long> missingProductIds = new ArrayList<>();
+        int validated = 0;
+        for (Product product : orderProducts) {
+            Long id = product.getId();
+            if (id == null) {
+                continue;
+            }
+            validated++;
+            if (!catalog.contains(id)) {
+                missingProductIds.add(id);
+            }
+        }
 
         if (!missingProductIds.isEmpty()) {
             String errorMessage = String.format("Products with IDs %s are not available or do not exist",
@@ -171,110 +285,100 @@ public class OrderService {
             throw new IllegalArgumentException(errorMessage);
         }
 
-        log.debug("Product validation passed for {} products", requestedProductIds.size());
+        log.debug("Product validation passed for {} products", validated);
     }
 
-    private void updateOrderProducts(Order cachedOrder, List<Product> incomingProducts) {
+    private OrderSnapshot updateOrderProducts(OrderSnapshot current, List<Product> incomingProducts) {
         if (incomingProducts == null || incomingProducts.isEmpty()) {
-            return;
+            return current;
         }
 
         // Single product update (add/remove/update from product page)
         if (incomingProducts.size() == 1) {
-            handleSingleProductUpdate(cachedOrder, incomingProducts.getFirst());
+            return handleSingleProductUpdate(current, incomingProducts.getFirst());
         }
         // Multiple products (cart update)
-        else {
-            cachedOrder.setProducts(new ArrayList<>(incomingProducts));
+        long[] productIds = new long[incomingProducts.size()];
+        int[] quantities = new int[incomingProducts.size()];
+        for (int i = 0; i < productIds.length; i++) {
+            Product product = incomingProducts.get(i);
+            productIds[i] = product.getId();
+            quantities[i] = product.getQuantity();
         }
+        return current.withLines(productIds, quantities);
     }
 
-    private void handleSingleProductUpdate(Order cachedOrder, Product incomingProduct) {
-        List<Product> existingProducts = cachedOrder.getProducts();
-        if (existingProducts == null) {
-            existingProducts = new ArrayList<>();
-            cachedOrder.setProducts(existingProducts);
-        }
-
-        Integer quantity = incomingProduct.getQuantity();
+    private OrderSnapshot handleSingleProductUpdate(OrderSnapshot current, Product incomingProduct) {
+        long productId = incomingProduct.getId();
+        int quantity = incomingProduct.getQuantity();
 
         // Find existing product
-        Optional<Product> existingProductOpt = existingProducts.stream()
-                .filter(p -> p.getId().equals(incomingProduct.getId()))
-                .findFirst();
+        int index = current.indexOf(productId);
 
-        if (existingProductOpt.isPresent()) {
+        if (index >= 0) {
             // Update existing product quantity
-            Product existingProduct = existingProductOpt.get();
-            int currentQuantity = existingProduct.getQuantity();
+            int currentQuantity = current.quantities()[index];
             int newQuantity = currentQuantity + quantity;
 
             log.info("Updating product {} quantity: {} + {} = {}",
-                    incomingProduct.getId(), currentQuantity, quantity, newQuantity);
+                    productId, currentQuantity, quantity, newQuantity);
 
             if (newQuantity <= 0) {
-                existingProducts.removeIf(p -> p.getId().equals(incomingProduct.getId()));
                 log.info("Removed product {} from order {} (quantity became {})",
-                        incomingProduct.getId(), cachedOrder.getId(), newQuantity);
-            } else if (newQuantity <= 10) { // Max quantity limit
-                existingProduct.setQuantity(newQuantity);
+                        productId, current.id(), newQuantity);
+                return current.withLineRemoved(index);
+            } else if (newQuantity <= MAX_QUANTITY) {
                 log.info("Updated product {} quantity to {} in order {}",
-                        incomingProduct.getId(), newQuantity, cachedOrder.getId());
+                        productId, newQuantity, current.id());
+                return current.withQuantity(index, newQuantity);
             } else {
                 // Cap at maximum quantity
-                existingProduct.setQuantity(10);
-                log.warn("Quantity capped at maximum (10) for product {} in order {}",
-                        incomingProduct.getId(), cachedOrder.getId());
-            }
-        } else {
-            // Add new product only if quantity is positive
-            if (quantity > 0) {
-                int finalQuantity = Math.min(quantity, 10); // Ensure max limit
-                existingProducts.add(Product.builder()
-                        .id(incomingProduct.getId())
-                        .quantity(finalQuantity)
-                        .name(incomingProduct.getName())
-                        .photoURL(incomingProduct.getPhotoURL())
-                        .build());
-
-                log.info("Added new product {} with quantity {} to order {}",
-                        incomingProduct.getId(), finalQuantity, cachedOrder.getId());
-
-                if (quantity > 10) {
-                    log.warn("Quantity reduced to maximum (10) for new product {} in order {}",
-                            incomingProduct.getId(), cachedOrder.getId());
-                }
-            } else {
-                log.info("Ignoring request to add product {} with non-positive quantity {} to order {}",
-                        incomingProduct.getId(), quantity, cachedOrder.getId());
+                log.warn("Quantity capped at maximum ({}) for product {} in order {}",
+                        MAX_QUANTITY, productId, current.id());
+                return current.withQuantity(index, MAX_QUANTITY);
             }
         }
+
+        // Add new product only if quantity is positive
+        if (quantity <= 0) {
+            log.info("Ignoring request to add product {} with non-positive quantity {} to order {}",
+                    productId, quantity, current.id());
+            return current;
+        }
+
+        int finalQuantity = Math.min(quantity, MAX_QUANTITY);
+
+        log.info("Added new product {} with quantity {} to order {}",
+                productId, finalQuantity, current.id());
+
+        if (quantity > MAX_QUANTITY) {
+            log.warn("Quantity reduced to maximum ({}) for new product {} in order {}",
+                    MAX_QUANTITY, productId, current.id());
+        }
+        return current.withLineAdded(productId, finalQuantity);
     }
 
-    public void enrichOrderWithProductDetails(Order order, List<Product> availableProducts) {
-        if (order.getProducts() == null || availableProducts == null) {
+    public void enrichOrderWithProductDetails(Order order, ProductCatalog catalog) {
+        if (order.getProducts() == null || catalog == null) {
             log.warn("Cannot enrich order: order.products={}, availableProducts={}",
-                    order.getProducts(), availableProducts != null ? availableProducts.size() : "null");
+                    order.getProducts(), catalog != null ? catalog.size() : "null");
             return;
         }
 
         log.info("Enriching order {} with {} available products",
-                order.getId(), availableProducts.size());
+                order.getId(), catalog.size());
 
         for (Product orderProduct : order.getProducts()) {
             String originalName = orderProduct.getName();
             String originalURL = orderProduct.getPhotoURL();
 
-            Optional<Product> foundProduct = availableProducts.stream()
-                    .filter(p -> p.getId().equals(orderProduct.getId()))
-                    .findFirst();
+            Product availableProduct = orderProduct.getId() != null ? catalog.get(orderProduct.getId()) : null;
 
-            if (foundProduct.isPresent()) {
-                Product availableProduct = foundProduct.get();
+            if (availableProduct != null) {
                 orderProduct.setName(availableProduct.getName());
                 orderProduct.setPhotoURL(availableProduct.getPhotoURL());
 
-                log.info("Enriched product {}: '{}' -> '{}', URL: '{}' -> '{}'",
+                log.debug("Enriched product {}: '{}' -> '{}', URL: '{}' -> '{}'",
                         orderProduct.getId(), originalName, availableProduct.getName(),
                         originalURL, availableProduct.getPhotoURL());
             } else {
@@ -283,4 +387,4 @@ public class OrderService {
             }
         }
     }
-}
\ No newline at end of file
+}
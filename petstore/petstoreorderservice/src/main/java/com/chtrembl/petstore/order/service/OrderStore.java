@@ -0,0 +1,53 @@
+package com.chtrembl.petstore.order.service;
+
+import com.chtrembl.petstore.order.model.OrderSnapshot;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Store for live orders (carts).
+ * <p>
+ * Values are immutable {@link OrderSnapshot}s carrying a version that grows with every stored
+ * change. {@link LocalOrderStore} keeps orders in this JVM; {@link RedisOrderStore} shares them
+ * between replicas, selected with {@code petstore.order.store.type}.
+ */
+public interface OrderStore {
+
+    Optional<OrderSnapshot> get(String orderId);
+
+    /**
+     * Looks up several orders at once, skipping the ones that do not exist.
+     *
+     * @return the found orders keyed by id, in the iteration order of {@code orderIds}
+     */
+    default Map<String, OrderSnapshot> getAll(Collection<String> orderIds) {
+        Map<String, OrderSnapshot> found = new LinkedHashMap<>();
+        for (String orderId : orderIds) {
+            get(orderId).ifPresent(order -> found.put(orderId, order));
+        }
+        return found;
+    }
+
+    /**
+     * Atomically applies {@code mutation} to the current snapshot of the order, or to an empty
+     * one if the order does not exist yet, and stores the result. A result that differs from the
+     * stored snapshot gets the next version number. The mutation may run more than once and must
+     * not have side effects.
+     *
+     * @return the snapshot stored after the update
+     */
+    OrderSnapshot update(String orderId, UnaryOperator<OrderSnapshot> mutation);
+
+    void remove(String orderId);
+
+    /**
+     * @return the number of orders held; may walk the whole store, so only for diagnostics
+     */
+    long size();
+
+    Map<String, String> stats();
+}
@@ -0,0 +1,148 @@
+package com.chtrembl.petstore.order.service;
+
+import com.chtrembl.petstore.order.model.Product;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Immutable view of the available products, keyed by product id.
+ * <p>
+ * Built once per product snapshot refresh. Ids are kept in an open-addressing {@code long}
+ * table so lookups on the order path neither box nor scan; see {@code ProductCatalogBenchmark}
+ * for the comparison with a {@code HashMap<Long, Product>}.
+ */
+public final class ProductCatalog {
+
+    public static final ProductCatalog EMPTY = new ProductCatalog(List.of());
+
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    private final List<Product> products;
+    private final long[] keys;
+    private final Product[] values;
+    private final int mask;
+    private final String fingerprint;
+
+    private ProductCatalog(List<Product> products) {
+        this.products = List.copyOf(products);
+        this.fingerprint = fingerprint(this.products);
+
+        int capacity = tableSizeFor(Math.max(2, this.products.size() * 2));
+        this.keys = new long[capacity];
+        this.values = new Product[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY_KEY);
+
+        for (Product product : this.products) {
+            if (product.getId() != null && product.getId() != EMPTY_KEY) {
+                put(product.getId(), product);
+            }
+        }
+    }
+
+    public static ProductCatalog of(List<Product> products) {
+        return products.isEmpty() ? EMPTY : new ProductCatalog(products);
+    }
+
+    public Product get(long productId) {
+        if (productId == EMPTY_KEY) {
+            return null;
+        }
+        int slot = mix(productId) & mask;
+        while (keys[slot] != EMPTY_KEY) {
+            if (keys[slot] == productId) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean contains(long productId) {
+        return get(productId) != null;
+    }
+
+    public List<Product> products() {
+        return products;
+    }
+
+    public int size() {
+        return products.size();
+    }
+
+    /**
+     * Digest of the product data enrichment uses, equal for catalogs built from equal products,
+     * so responses enriched from the catalog can be validated across refreshes that changed
+     * nothing.
+     */
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    private void put(long productId, Product product) {
+        int slot = mix(productId) & mask;
+        while (keys[slot] != EMPTY_KEY) {
+            if (keys[slot] == productId) {
+                // keep the first occurrence, matching the previous findFirst() semantics
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = productId;
+        values[slot] = product;
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = Integer.highestOneBit(n - 1) << 1;
+        return size < 0 ? 1 << 30 : size;
+    }
+
+    /**
+     * SHA-256 over id, name and photo URL of every product in order, each field length-prefixed
+     * so that no two catalogs encode the same.
+     */
+    private static String fingerprint(List<Product> products) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            OutputStream sink = new DigestOutputStream(OutputStream.nullOutputStream(), digest);
+            try (DataOutputStream out = new DataOutputStream(sink)) {
+                out.writeInt(products.size());
+                for (Product product : products) {
+                    out.writeBoolean(product.getId() != null);
+                    out.writeLong(product.getId() != null ? product.getId() : 0);
+                    writeNullable(out, product.getName());
+                    writeNullable(out, product.getPhotoURL());
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
@@ -3,20 +3,41 @@ package com.chtrembl.petstore.order.service;
 import com.chtrembl.petstore.order.model.Product;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Keeps a snapshot of the available products from the product service.
+ * <p>
+ * The snapshot is refreshed ahead of time on a schedule, so order requests read it without
+ * a round trip. A snapshot older than {@code max-staleness} is still served while a refresh
+ * runs in the background. Failed fetches never replace the last good snapshot.
+ * <p>
+ * {@code fetch-timeout} is enforced on the HTTP request itself (see {@code RestTemplateConfig}),
+ * so a hung product service fails the fetch and frees the refresh thread. Only then is the
+ * next fetch started; a cold-start caller stops waiting after the same timeout.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
@@ -25,37 +46,123 @@ public class ProductService {
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
 
+    private final AtomicReference<ProductSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<ProductSnapshot>> inFlight = new AtomicReference<>();
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-snapshot-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     @Value("${petstore.service.product.url:http://localhost:8082}")
     private String productServiceUrl;
 
-    @Cacheable("products")
+    @Value("${petstore.service.product.fetch-timeout:PT5S}")
+    private Duration fetchTimeout;
+
+    @Value("${petstore.service.product.max-staleness:PT5M}")
+    private Duration maxStaleness;
+
     public List<Product> getAvailableProducts() {
+        return getProductCatalog().products();
+    }
+
+    /**
+     * @return the available products indexed by id, rebuilt once per refresh
+     */
+    public ProductCatalog getProductCatalog() {
+        ProductSnapshot current = snapshot.get();
+        if (current != null) {
+            if (current.isOlderThan(maxStaleness)) {
+                log.debug("Product snapshot from {} is stale, serving it while refreshing", current.fetchedAt());
+                refreshAsync();
+            }
+            return current.catalog();
+        }
+
+        // Cold start: nothing to serve yet, wait for the first fetch
+        try {
+            return refreshAsync().get(fetchTimeout.toMillis(), TimeUnit.MILLISECONDS).catalog();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Error retrieving products from product service: {}", e.getMessage());
+        }
+        return ProductCatalog.EMPTY; // Not cached, the next call retries
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${petstore.service.product.refresh-interval:PT1M}")
+    public void scheduledRefresh() {
+        refreshAsync();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts a fetch unless one is already running and returns the pending result.
+     */
+    private CompletableFuture<ProductSnapshot> refreshAsync() {
+        CompletableFuture<ProductSnapshot> pending = inFlight.get();
+        if (pending != null) {
+            return pending;
+        }
+
+        CompletableFuture<ProductSnapshot> started = new CompletableFuture<>();
+        if (!inFlight.compareAndSet(null, started)) {
+            return inFlight.get();
+        }
+
+        CompletableFuture.supplyAsync(this::fetchProducts, refreshExecutor)
+                .whenComplete((products, error) -> {
+                    if (error != null) {
+                        log.error("Error refreshing products from product service, keeping previous snapshot: {}",
+                                error.getMessage());
+                        inFlight.set(null);
+                        started.completeExceptionally(error);
+                        return;
+                    }
+                    ProductSnapshot refreshed = new ProductSnapshot(ProductCatalog.of(products), Instant.now());
+                    snapshot.set(refreshed);
+                    inFlight.set(null);
+                    started.complete(refreshed);
+                });
+        return started;
+    }
+
+    private List<Product> fetchProducts() {
         log.info("Retrieving products from: {}/petstoreproductservice/v2/product/findByStatus?status=available",
                 productServiceUrl);
 
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
-            headers.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+        headers.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
 
-            HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
+        HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
 
-            ResponseEntity<String> response = restTemplate.exchange(
-                    String.format("%s/petstoreproductservice/v2/product/findByStatus?status=available", productServiceUrl),
-                    HttpMethod.GET,
-                    entity,
-                    String.class
-            );
+        ResponseEntity<String> response = restTemplate.exchange(
+                String.format("%s/petstoreproductservice/v2/product/findByStatus?status=available", productServiceUrl),
+                HttpMethod.GET,
+                entity,
+                String.class
+        );
 
+        try {
             List<Product> products = objectMapper.readValue(response.getBody(), new TypeReference<>() {
             });
-
             log.info("Successfully retrieved {} products from product service", products.size());
             return products;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Error retrieving products from product service: {}", e.getMessage(), e);
-            return List.of(); // Return empty list on error
+    private record ProductSnapshot(ProductCatalog catalog, Instant fetchedAt) {
+
+        boolean isOlderThan(Duration age) {
+            return fetchedAt.plus(age).isBefore(Instant.now());
         }
     }
 }
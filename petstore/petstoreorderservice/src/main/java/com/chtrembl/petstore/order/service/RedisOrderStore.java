@@ -0,0 +1,200 @@
+package com.chtrembl.petstore.order.service;
+
+import com.chtrembl.petstore.order.model.OrderSnapshot;
+import com.chtrembl.petstore.order.model.OrderSnapshotCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link OrderStore} kept in Redis, so any replica behind a plain load balancer can serve any cart.
+ * <p>
+ * Each order is a hash holding its version ({@code v}), its {@link OrderSnapshotCodec} blob
+ * ({@code d}) and whether it is complete ({@code c}). Updates are optimistic: the order is read,
+ * mutated locally and written by a script that only succeeds if the stored version is still the
+ * one the mutation started from. The read cannot be folded into that script because the mutation
+ * is Java code that needs the stored order, so an update takes two round trips; on a conflict the
+ * script returns the order it found and the retry starts from that without reading again.
+ * Reading several orders sends all lookups in one pipeline.
+ * <p>
+ * Keys expire {@code idle-timeout} after the last change or read, as in {@link LocalOrderStore},
+ * or {@code completed-ttl} after the order was completed, which reads do not extend.
+ */
+@Component
+@ConditionalOnProperty(name = "petstore.order.store.type", havingValue = "redis")
+@Slf4j
+public class RedisOrderStore implements OrderStore {
+
+    private static final String GET_AND_TOUCH_SOURCE = """
+            local order = redis.call('HMGET', KEYS[1], 'd', 'c')
+            if order[1] and order[2] ~= '1' then
+                redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            end
+            return order[1]
+            """;
+    private static final byte[] GET_AND_TOUCH_BYTES = GET_AND_TOUCH_SOURCE.getBytes(StandardCharsets.UTF_8);
+    private static final RedisScript<byte[]> GET_AND_TOUCH = new DefaultRedisScript<>(GET_AND_TOUCH_SOURCE, byte[].class);
+
+    /**
+     * Returns an empty list once written, otherwise the stored version and blob (empty if none).
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> COMPARE_AND_SET = new DefaultRedisScript<>("""
+            local current = redis.call('HMGET', KEYS[1], 'v', 'd')
+            if (current[1] or '0') ~= ARGV[1] then
+                return {current[1] or '0', current[2] or ''}
+            end
+            redis.call('HSET', KEYS[1], 'v', ARGV[2], 'd', ARGV[3], 'c', ARGV[5])
+            redis.call('PEXPIRE', KEYS[1], ARGV[4])
+            return {}
+            """, List.class);
+
+    private final RedisTemplate<String, byte[]> redis;
+    private final String keyPrefix;
+    private final int maxAttempts;
+    private final Duration idleTimeout;
+    private final Duration completedTtl;
+
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    public RedisOrderStore(RedisConnectionFactory connectionFactory,
+                           @Value("${petstore.order.store.redis.key-prefix:petstore:order:}") String keyPrefix,
+                           @Value("${petstore.order.store.redis.max-attempts:10}") int maxAttempts,
+                           @Value("${petstore.order.store.idle-timeout:PT12H}") Duration idleTimeout,
+                           @Value("${petstore.order.store.completed-ttl:PT15M}") Duration completedTtl) {
+        this.redis = new RedisTemplate<>();
+        this.redis.setConnectionFactory(connectionFactory);
+        this.redis.setKeySerializer(RedisSerializer.string());
+        this.redis.setValueSerializer(RedisSerializer.byteArray());
+        this.redis.setHashKeySerializer(RedisSerializer.string());
+        this.redis.setHashValueSerializer(RedisSerializer.byteArray());
+        this.redis.afterPropertiesSet();
+
+        this.keyPrefix = keyPrefix;
+        this.maxAttempts = maxAttempts;
+        this.idleTimeout = idleTimeout;
+        this.completedTtl = completedTtl;
+
+        log.info("Redis order store configured with keyPrefix={}, idleTimeout={}, completedTtl={}",
+                keyPrefix, idleTimeout, completedTtl);
+    }
+
+    @Override
+    public Optional<OrderSnapshot> get(String orderId) {
+        byte[] encoded = redis.execute(GET_AND_TOUCH, List.of(key(orderId)), ascii(idleTimeout.toMillis()));
+        return Optional.ofNullable(encoded).map(OrderSnapshotCodec::decode);
+    }
+
+    @Override
+    public Map<String, OrderSnapshot> getAll(Collection<String> orderIds) {
+        List<String> ids = List.copyOf(orderIds);
+        byte[] idleMillis = ascii(idleTimeout.toMillis());
+        List<Object> encoded = redis.executePipelined((RedisCallback<Object>) connection -> {
+            for (String id : ids) {
+                connection.scriptingCommands().eval(GET_AND_TOUCH_BYTES, ReturnType.VALUE, 1,
+                        key(id).getBytes(StandardCharsets.UTF_8), idleMillis);
+            }
+            return null;
+        });
+
+        Map<String, OrderSnapshot> found = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (encoded.get(i) instanceof byte[] bytes) {
+                found.put(ids.get(i), OrderSnapshotCodec.decode(bytes));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public OrderSnapshot update(String orderId, UnaryOperator<OrderSnapshot> mutation) {
+        updates.increment();
+        OrderSnapshot stored = get(orderId).orElse(null);
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            OrderSnapshot base = stored != null ? stored : OrderSnapshot.empty(orderId);
+            OrderSnapshot next = mutation.apply(base);
+            if (next == stored) {
+                return stored;
+            }
+
+            OrderSnapshot versioned = next.withVersion(base.version() + 1);
+            Duration ttl = versioned.complete() ? completedTtl : idleTimeout;
+            List<?> current = redis.execute(COMPARE_AND_SET, List.of(key(orderId)),
+                    ascii(base.version()), ascii(versioned.version()),
+                    OrderSnapshotCodec.encode(versioned), ascii(ttl.toMillis()),
+                    ascii(versioned.complete() ? 1 : 0));
+            if (current != null && current.isEmpty()) {
+                return versioned;
+            }
+
+            conflicts.increment();
+            log.debug("Order {} changed concurrently at version {}, retrying (attempt {})",
+                    orderId, base.version(), attempt);
+            byte[] found = current != null && current.size() == 2 ? (byte[]) current.get(1) : null;
+            stored = found != null && found.length > 0 ? OrderSnapshotCodec.decode(found) : null;
+        }
+        throw new IllegalStateException("Order " + orderId + " is being updated concurrently, giving up after "
+                + maxAttempts + " attempts");
+    }
+
+    @Override
+    public void remove(String orderId) {
+        redis.delete(key(orderId));
+    }
+
+    /**
+     * Counts the order keys with {@code SCAN}, which walks the whole keyspace in batches; meant
+     * for the info endpoint, not for request paths. A key may be counted twice while Redis
+     * resizes its table.
+     */
+    @Override
+    public long size() {
+        ScanOptions options = ScanOptions.scanOptions().match(keyPrefix + "*").count(1000).build();
+        long count = 0;
+        try (Cursor<String> keys = redis.scan(options)) {
+            while (keys.hasNext()) {
+                keys.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, String> stats() {
+        return Map.of(
+                "ordersStore", "redis",
+                "ordersStoreUpdates", String.valueOf(updates.sum()),
+                "ordersStoreConflicts", String.valueOf(conflicts.sum())
+        );
+    }
+
+    private String key(String orderId) {
+        return keyPrefix + orderId;
+    }
+
+    private static byte[] ascii(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,94 @@
+package com.chtrembl.petstore.order.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The product service gets {@code fetch-timeout} on the HTTP request itself, other routes keep
+ * the general read timeout.
+ */
+class RestTemplateConfigTest {
+
+    private static final Duration RESPONSE_DELAY = Duration.ofMillis(800);
+
+    private HttpServer slowServer;
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        slowServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        slowServer.createContext("/", exchange -> {
+            try {
+                Thread.sleep(RESPONSE_DELAY.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        slowServer.setExecutor(null);
+        slowServer.start();
+
+        RestTemplateConfig config = new RestTemplateConfig();
+        ReflectionTestUtils.setField(config, "maxTotal", 10);
+        ReflectionTestUtils.setField(config, "maxPerRoute", 5);
+        ReflectionTestUtils.setField(config, "connectTimeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(config, "readTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(config, "poolAcquireTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(config, "idleEviction", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(config, "productServiceUrl", "http://127.0.0.1:" + port());
+        ReflectionTestUtils.setField(config, "productServiceMaxConnections", 5);
+        ReflectionTestUtils.setField(config, "productFetchTimeout", Duration.ofMillis(200));
+
+        httpClient = config.httpClient(config.httpClientConnectionManager());
+        restTemplate = config.restTemplate(httpClient);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        httpClient.close();
+        slowServer.stop(0);
+    }
+
+    @Test
+    void productServiceRequestGivesUpAfterTheFetchTimeout() {
+        long started = System.nanoTime();
+
+        assertThatThrownBy(() -> restTemplate.getForObject(
+                "http://127.0.0.1:" + port() + "/petstoreproductservice/v2/product/findByStatus?status=available",
+                String.class))
+                .isInstanceOf(ResourceAccessException.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(RESPONSE_DELAY);
+    }
+
+    @Test
+    void otherRoutesKeepTheReadTimeout() {
+        // same server, but "localhost" is a different route than the configured 127.0.0.1
+        String body = restTemplate.getForObject("http://localhost:" + port() + "/other", String.class);
+
+        assertThat(body).isEqualTo("[]");
+    }
+
+    private int port() {
+        return slowServer.getAddress().getPort();
+    }
+}
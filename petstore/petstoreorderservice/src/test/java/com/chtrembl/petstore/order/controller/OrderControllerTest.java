@@ -0,0 +1,149 @@
+package com.chtrembl.petstore.order.controller;
+
+import com.chtrembl.petstore.order.exception.GlobalExceptionHandler;
+import com.chtrembl.petstore.order.model.OrderBatchGet;
+import com.chtrembl.petstore.order.model.Product;
+import com.chtrembl.petstore.order.repository.TransientOrderRepository;
+import com.chtrembl.petstore.order.service.LocalOrderStore;
+import com.chtrembl.petstore.order.service.OrderService;
+import com.chtrembl.petstore.order.service.ProductCatalog;
+import com.chtrembl.petstore.order.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class OrderControllerTest {
+
+    private static final String ORDER_ID = "68FAE9B1D86B794F0AE0ADD35A437428";
+    private static final String OTHER_ID = "11111111111111111111111111111111";
+    private static final String UNKNOWN_ID = "00000000000000000000000000000000";
+
+    private final LocalOrderStore store = new LocalOrderStore(new TransientOrderRepository(),
+            100_000, Duration.ofHours(1), Duration.ofMinutes(15));
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ProductService productService = mock(ProductService.class);
+        when(productService.getProductCatalog()).thenReturn(ProductCatalog.of(List.of(
+                Product.builder().id(1L).name("Ball").build(),
+                Product.builder().id(2L).name("Rope").build())));
+        OrderController controller = new OrderController(new OrderService(store, productService), productService,
+                new ObjectMapper());
+        ReflectionTestUtils.setField(controller, "batchGetMaxIds", 3);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        store.update(ORDER_ID, order -> order.withLineAdded(1L, 2));
+        store.update(OTHER_ID, order -> order.withLineAdded(2L, 1));
+    }
+
+    @Test
+    void patchReturnsTheChangedLinesWithTheNewVersion() throws Exception {
+        mockMvc.perform(patch("/petstoreorderservice/v2/store/order/{orderId}", ORDER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[{\"productId\":1,\"quantityDelta\":20},"
+                                + "{\"productId\":2,\"quantityDelta\":1}]}"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.id").value(ORDER_ID))
+                .andExpect(jsonPath("$.version").value(2))
+                .andExpect(jsonPath("$.changed.length()").value(2))
+                .andExpect(jsonPath("$.changed[0].productId").value(1))
+                .andExpect(jsonPath("$.changed[0].quantity").value(10))
+                .andExpect(jsonPath("$.changed[1].productId").value(2))
+                .andExpect(jsonPath("$.changed[1].quantity").value(1));
+    }
+
+    @Test
+    void patchOfAnUnknownOrderIsNotFound() throws Exception {
+        mockMvc.perform(patch("/petstoreorderservice/v2/store/order/{orderId}", UNKNOWN_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[{\"productId\":1,\"quantityDelta\":1}]}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void patchWithAnUnknownProductIsABadRequest() throws Exception {
+        mockMvc.perform(patch("/petstoreorderservice/v2/store/order/{orderId}", ORDER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[{\"productId\":99,\"quantityDelta\":1}]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void batchGetStreamsFoundOrdersOnceInRequestOrder() throws Exception {
+        MvcResult started = mockMvc.perform(batchGet("\"" + OTHER_ID + "\",\"" + UNKNOWN_ID + "\",\""
+                        + ORDER_ID + "\",\"" + OTHER_ID + "\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(OTHER_ID))
+                .andExpect(jsonPath("$[0].products[0].name").value("Rope"))
+                .andExpect(jsonPath("$[1].id").value(ORDER_ID))
+                .andExpect(jsonPath("$[1].products[0].id").value(1))
+                .andExpect(jsonPath("$[1].products[0].quantity").value(2))
+                .andExpect(jsonPath("$[1].products[0].name").value("Ball"));
+    }
+
+    @Test
+    void batchGetOfOnlyUnknownIdsIsAnEmptyArray() throws Exception {
+        MvcResult started = mockMvc.perform(batchGet("\"" + UNKNOWN_ID + "\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void batchGetOverTheConfiguredLimitIsABadRequest() throws Exception {
+        // four distinct ids against a limit of three
+        mockMvc.perform(batchGet("\"" + ORDER_ID + "\",\"" + OTHER_ID + "\",\"" + UNKNOWN_ID + "\","
+                        + "\"22222222222222222222222222222222\""))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("At most 3 order IDs per request, got 4"));
+    }
+
+    @Test
+    void batchGetOverTheModelBoundIsABadRequest() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i <= OrderBatchGet.MAX_IDS; i++) {
+            ids.add("\"" + String.format("%032X", i) + "\"");
+        }
+
+        mockMvc.perform(batchGet(String.join(",", ids)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details.ids").value("At most 1000 order IDs per request"));
+    }
+
+    private static RequestBuilder batchGet(String ids) {
+        return post("/petstoreorderservice/v2/store/orders:batchGet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[" + ids + "]}");
+    }
+}
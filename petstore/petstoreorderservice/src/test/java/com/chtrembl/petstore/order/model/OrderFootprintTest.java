@@ -0,0 +1,66 @@
+package com.chtrembl.petstore.order.model;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Retained heap of cached carts as {@link Order}/{@link Product} objects, the form the store
+ * held before, and as {@link OrderSnapshot}s, measured with JOL over the whole object graph.
+ * <p>
+ * Runs 10k carts by default. For the 1M cart comparison run
+ * {@code mvn test -Dtest=OrderFootprintTest -Dfootprint.carts=1000000 -DargLine=-Xmx8g}.
+ */
+class OrderFootprintTest {
+
+    private static final int LINES = 5;
+    private static final String[] NAMES = {"Ball", "Rope", "Bone", "Leash", "Collar", "Bed", "Bowl", "Brush"};
+
+    @Test
+    void snapshotsRetainAFractionOfTheOrderObjects() {
+        int carts = Integer.getInteger("footprint.carts", 10_000);
+        SplittableRandom random = new SplittableRandom(42);
+        List<Order> orders = new ArrayList<>(carts);
+        List<OrderSnapshot> snapshots = new ArrayList<>(carts);
+        for (int c = 0; c < carts; c++) {
+            String id = String.format("%032X", c);
+            OrderSnapshot snapshot = OrderSnapshot.empty(id);
+            List<Product> products = new ArrayList<>();
+            for (int line = 0; line < LINES; line++) {
+                long productId = 1 + random.nextInt(NAMES.length * 100);
+                int quantity = 1 + random.nextInt(10);
+                if (snapshot.indexOf(productId) >= 0) {
+                    continue;
+                }
+                snapshot = snapshot.withLineAdded(productId, quantity);
+                // deserialized orders carried their own copies of the catalog strings
+                String name = NAMES[(int) (productId % NAMES.length)];
+                products.add(Product.builder()
+                        .id(productId)
+                        .quantity(quantity)
+                        .name(name + " " + productId)
+                        .photoURL("https://raw.githubusercontent.com/chtrembl/staticcontent/master/dog-toys/"
+                                + name.toLowerCase() + "-" + productId + ".jpg?raw=true")
+                        .build());
+            }
+            String email = "customer" + c + "@example.com";
+            orders.add(Order.builder().id(id).email(email)
+                    .status(Order.Status.PLACED).products(products).version(1L).build());
+            snapshots.add(new OrderSnapshot(id, email, Order.Status.PLACED, false,
+                    snapshot.productIds(), snapshot.quantities(), 1, snapshot.epoch()));
+        }
+
+        long orderBytes = GraphLayout.parseInstance(orders).totalSize();
+        long snapshotBytes = GraphLayout.parseInstance(snapshots).totalSize();
+        System.out.printf("%d carts of %d lines: Order/Product %,d bytes (%d per cart), "
+                        + "OrderSnapshot %,d bytes (%d per cart)%n",
+                carts, LINES, orderBytes, orderBytes / carts, snapshotBytes, snapshotBytes / carts);
+
+        assertThat(snapshotBytes).isLessThan(orderBytes / 2);
+    }
+}
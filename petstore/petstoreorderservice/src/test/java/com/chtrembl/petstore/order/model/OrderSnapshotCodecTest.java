@@ -0,0 +1,49 @@
+package com.chtrembl.petstore.order.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderSnapshotCodecTest {
+
+    @Test
+    void roundTripsAnOrder() {
+        OrderSnapshot order = new OrderSnapshot("session-1", "jane@example.com", Order.Status.APPROVED, true,
+                new long[]{3L, Long.MAX_VALUE, 5L}, new int[]{1, 2, 99}, 42, -17);
+
+        OrderSnapshot decoded = OrderSnapshotCodec.decode(OrderSnapshotCodec.encode(order));
+
+        assertSameOrder(decoded, order);
+    }
+
+    @Test
+    void roundTripsAnEmptyOrderWithoutEmailOrStatus() {
+        OrderSnapshot order = new OrderSnapshot("session-2", null, null, false, null, null, 0, 1);
+
+        OrderSnapshot decoded = OrderSnapshotCodec.decode(OrderSnapshotCodec.encode(order));
+
+        assertSameOrder(decoded, order);
+    }
+
+    @Test
+    void rejectsUnknownFormat() {
+        byte[] encoded = OrderSnapshotCodec.encode(OrderSnapshot.empty("session-4"));
+        encoded[0] = 2;
+
+        assertThatThrownBy(() -> OrderSnapshotCodec.decode(encoded))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("format 2");
+    }
+
+    private static void assertSameOrder(OrderSnapshot actual, OrderSnapshot expected) {
+        assertThat(actual.id()).isEqualTo(expected.id());
+        assertThat(actual.email()).isEqualTo(expected.email());
+        assertThat(actual.status()).isEqualTo(expected.status());
+        assertThat(actual.complete()).isEqualTo(expected.complete());
+        assertThat(actual.productIds()).containsExactly(expected.productIds());
+        assertThat(actual.quantities()).containsExactly(expected.quantities());
+        assertThat(actual.version()).isEqualTo(expected.version());
+        assertThat(actual.epoch()).isEqualTo(expected.epoch());
+    }
+}
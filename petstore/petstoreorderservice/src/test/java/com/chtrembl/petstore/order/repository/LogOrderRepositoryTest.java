@@ -0,0 +1,145 @@
+package com.chtrembl.petstore.order.repository;
+
+import com.chtrembl.petstore.order.model.Order;
+import com.chtrembl.petstore.order.model.OrderSnapshot;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LogOrderRepositoryTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    private final List<LogOrderRepository> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeRepositories() {
+        opened.forEach(LogOrderRepository::close);
+    }
+
+    @Test
+    void ordersAreReadBackFromDiskAfterRestart() throws Exception {
+        LogOrderRepository repository = open(Duration.ofHours(1));
+        repository.save(cart("kept", 2).withVersion(3));
+        repository.save(cart("deleted", 1));
+        repository.delete("deleted");
+        restart(repository);
+
+        LogOrderRepository reopened = open(Duration.ofHours(1));
+        OrderSnapshot kept = reopened.find("kept").orElseThrow();
+        assertThat(kept.productIds()).containsExactly(1L, 2L);
+        assertThat(kept.quantities()).containsExactly(1, 2);
+        assertThat(kept.version()).isEqualTo(3);
+        assertThat(kept.epoch()).isNotZero();
+        assertThat(reopened.find("deleted")).isEmpty();
+        assertThat(reopened.size()).isEqualTo(1);
+    }
+
+    @Test
+    void flushedOrdersAreReadFromTheLog() throws Exception {
+        LogOrderRepository repository = open(Duration.ofHours(1));
+        repository.save(cart("cart", 1));
+        repository.save(cart("cart", 2).withVersion(2));
+        Thread.sleep(200);
+
+        assertThat(repository.find("cart").orElseThrow().version()).isEqualTo(2);
+    }
+
+    @Test
+    void expiredOrdersAreNotFoundAndCompactedAway() throws Exception {
+        LogOrderRepository repository = open(Duration.ofMillis(50));
+        repository.save(cart("idle", 1));
+        repository.save(new OrderSnapshot("done", null, Order.Status.PLACED, true,
+                new long[]{1L}, new int[]{1}, 1, 1));
+        Thread.sleep(100);
+
+        assertThat(repository.find("idle")).isEmpty();
+        assertThat(repository.find("done")).isEmpty();
+        restart(repository);
+
+        LogOrderRepository reopened = open(Duration.ofMillis(50));
+        assertThat(reopened.size()).isZero();
+    }
+
+    @Test
+    void writesRecordsWithTheirFormat() throws Exception {
+        LogOrderRepository repository = open(Duration.ofHours(1));
+        repository.save(cart("cart", 1));
+        restart(repository);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            Path snapshot = files.filter(file -> file.getFileName().toString().endsWith(".snapshot"))
+                    .findFirst().orElseThrow();
+            JsonNode record = MAPPER.readTree(Files.readAllLines(snapshot).get(0));
+            assertThat(record.get("format").asInt()).isEqualTo(3);
+            assertThat(record.get("order").get("productIds").get(0).asLong()).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void refusesRecordsOfANewerFormat() throws Exception {
+        Files.writeString(directory.resolve("orders-1.snapshot"),
+                "{\"format\":4,\"op\":\"PUT\",\"id\":\"cart\",\"order\":{\"id\":\"cart\"},\"at\":1}\n");
+
+        assertThatThrownBy(() -> open(Duration.ofHours(1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("format 4");
+    }
+
+    @Test
+    void refusesRecordsOfAnOlderFormat() throws Exception {
+        Files.writeString(directory.resolve("orders-1.snapshot"),
+                "{\"format\":2,\"op\":\"PUT\",\"id\":\"cart\",\"order\":{\"id\":\"cart\"},\"at\":1}\n");
+
+        assertThatThrownBy(() -> open(Duration.ofHours(1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("format 2");
+    }
+
+    @Test
+    void refusesOrdersOfAnUnknownShape() throws Exception {
+        Files.writeString(directory.resolve("orders-1.snapshot"),
+                "{\"format\":3,\"op\":\"PUT\",\"id\":\"cart\",\"order\":{\"id\":\"cart\","
+                        + "\"items\":[{\"productId\":1}]},\"at\":1}\n");
+
+        assertThatThrownBy(() -> open(Duration.ofHours(1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Unsupported order record");
+    }
+
+    private LogOrderRepository open(Duration ttl) throws Exception {
+        LogOrderRepository repository = new LogOrderRepository(MAPPER, directory, Duration.ofMillis(20),
+                50_000, Duration.ofHours(1), ttl, ttl);
+        repository.open();
+        opened.add(repository);
+        return repository;
+    }
+
+    private void restart(LogOrderRepository repository) {
+        repository.close();
+        opened.remove(repository);
+    }
+
+    private static OrderSnapshot cart(String id, int lines) {
+        OrderSnapshot order = OrderSnapshot.empty(id).withVersion(1);
+        for (int i = 1; i <= lines; i++) {
+            order = order.withLineAdded(i, i);
+        }
+        return order;
+    }
+}
@@ -0,0 +1,21 @@
+package com.chtrembl.petstore.order.service;
+
+import com.chtrembl.petstore.order.repository.TransientOrderRepository;
+
+import java.time.Duration;
+
+class LocalOrderStoreConcurrencyTest extends OrderStoreConcurrencyTest {
+
+    private final LocalOrderStore store = new LocalOrderStore(new TransientOrderRepository(),
+            100_000, Duration.ofHours(1), Duration.ofMinutes(15));
+
+    @Override
+    OrderStore store() {
+        return store;
+    }
+
+    @Override
+    String orderId(String name) {
+        return name;
+    }
+}
@@ -0,0 +1,111 @@
+package com.chtrembl.petstore.order.service;
+
+import com.chtrembl.petstore.order.exception.OrderNotFoundException;
+import com.chtrembl.petstore.order.model.CartDelta;
+import com.chtrembl.petstore.order.model.CartDeltaResult;
+import com.chtrembl.petstore.order.model.Order;
+import com.chtrembl.petstore.order.model.OrderSnapshot;
+import com.chtrembl.petstore.order.model.Product;
+import com.chtrembl.petstore.order.repository.TransientOrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderServiceTest {
+
+    private final LocalOrderStore store = new LocalOrderStore(new TransientOrderRepository(),
+            100_000, Duration.ofHours(1), Duration.ofMinutes(15));
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        ProductService productService = mock(ProductService.class);
+        when(productService.getProductCatalog()).thenReturn(ProductCatalog.of(List.of(
+                Product.builder().id(1L).name("Ball").build(),
+                Product.builder().id(2L).name("Rope").build(),
+                Product.builder().id(3L).name("Bone").build())));
+        orderService = new OrderService(store, productService);
+        store.update("cart", order -> order.withLineAdded(1L, 2));
+    }
+
+    @Test
+    void deltaIsClampedToTheMaximumQuantity() {
+        CartDeltaResult result = orderService.applyCartDelta("cart", List.of(delta(1L, 50))).toResult();
+
+        assertThat(result.getChanged()).containsExactly(new CartDeltaResult.Line(1L, 10));
+        assertThat(store.get("cart").orElseThrow().quantities()).containsExactly(10);
+    }
+
+    @Test
+    void lineReachingZeroIsRemoved() {
+        CartDeltaResult result = orderService.applyCartDelta("cart", List.of(delta(1L, -5))).toResult();
+
+        assertThat(result.getChanged()).containsExactly(new CartDeltaResult.Line(1L, 0));
+        assertThat(store.get("cart").orElseThrow().lineCount()).isZero();
+    }
+
+    @Test
+    void returnsTheChangedLinesAndTheNewVersion() {
+        OrderService.CartDeltaOutcome outcome = orderService.applyCartDelta("cart",
+                List.of(delta(1L, 0), delta(2L, 3), delta(3L, -1), delta(2L, 1)));
+
+        // product 1 is unchanged and product 3 never reaches a positive quantity
+        assertThat(outcome.toResult().getChanged()).containsExactly(new CartDeltaResult.Line(2L, 4));
+        assertThat(outcome.toResult().getVersion()).isEqualTo(2);
+        assertThat(outcome.order().productIds()).containsExactly(1L, 2L);
+        assertThat(outcome.order().quantities()).containsExactly(2, 4);
+    }
+
+    @Test
+    void deltaChangingNothingKeepsTheVersion() {
+        CartDeltaResult result = orderService.applyCartDelta("cart", List.of(delta(1L, 0))).toResult();
+
+        assertThat(result.getChanged()).isEmpty();
+        assertThat(result.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void deltaOnAnUnknownOrderStoresNothing() {
+        assertThatThrownBy(() -> orderService.applyCartDelta("missing", List.of(delta(1L, 1))))
+                .isInstanceOf(OrderNotFoundException.class);
+
+        assertThat(store.get("missing")).isEmpty();
+    }
+
+    @Test
+    void deltaOnACompletedOrderIsRejected() {
+        store.update("cart", order -> new OrderSnapshot(order.id(), order.email(), order.status(), true,
+                order.productIds(), order.quantities(), order.version(), order.epoch()));
+
+        assertThatThrownBy(() -> orderService.applyCartDelta("cart", List.of(delta(1L, 1))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("already complete");
+        assertThat(store.get("cart").orElseThrow().quantities()).containsExactly(2);
+    }
+
+    @Test
+    void deltaWithAnUnknownProductIsRejected() {
+        assertThatThrownBy(() -> orderService.applyCartDelta("cart", List.of(delta(1L, 1), delta(99L, 1))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("[99]");
+    }
+
+    @Test
+    void singleProductUpdateIsCappedAtTheMaximumQuantity() {
+        OrderSnapshot updated = orderService.updateOrder(Order.builder().id("cart")
+                .products(List.of(Product.builder().id(1L).quantity(20).build())).build());
+
+        assertThat(updated.quantities()).containsExactly(10);
+    }
+
+    private static CartDelta.Operation delta(long productId, int quantityDelta) {
+        return new CartDelta.Operation(productId, quantityDelta);
+    }
+}
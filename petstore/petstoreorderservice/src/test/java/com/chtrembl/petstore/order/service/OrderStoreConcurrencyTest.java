@@ -0,0 +1,131 @@
+package com.chtrembl.petstore.order.service;
+
+import com.chtrembl.petstore.order.model.OrderSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Stress test shared by the {@link OrderStore} implementations: many threads add to the same
+ * and to different orders at once, and no increment or version may be lost.
+ */
+abstract class OrderStoreConcurrencyTest {
+
+    static final int THREADS = 8;
+    static final int INCREMENTS = 500;
+
+    private static final long[] PRODUCTS = {1L, 2L, 3L};
+
+    abstract OrderStore store();
+
+    abstract String orderId(String name);
+
+    @Test
+    void concurrentUpdatesOfOneOrderLoseNothing() throws Exception {
+        String orderId = orderId("shared");
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < INCREMENTS; i++) {
+                store().update(orderId, increment(PRODUCTS[(thread + i) % PRODUCTS.length]));
+            }
+        });
+
+        OrderSnapshot order = store().get(orderId).orElseThrow();
+        int[] expected = new int[PRODUCTS.length];
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int i = 0; i < INCREMENTS; i++) {
+                expected[(thread + i) % PRODUCTS.length]++;
+            }
+        }
+        for (int p = 0; p < PRODUCTS.length; p++) {
+            int line = order.indexOf(PRODUCTS[p]);
+            assertThat(line).as("line of product %d", PRODUCTS[p]).isNotNegative();
+            assertThat(order.quantities()[line]).as("quantity of product %d", PRODUCTS[p]).isEqualTo(expected[p]);
+        }
+        assertThat(order.lineCount()).isEqualTo(PRODUCTS.length);
+        assertThat(order.version()).isEqualTo((long) THREADS * INCREMENTS);
+    }
+
+    @Test
+    void concurrentUpdatesOfDistinctOrdersLoseNothing() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < INCREMENTS; i++) {
+                // every thread touches every order, interleaved with the other threads
+                store().update(orderId("distinct-" + (thread + i) % THREADS), increment(PRODUCTS[0]));
+            }
+        });
+
+        for (int n = 0; n < THREADS; n++) {
+            OrderSnapshot order = store().get(orderId("distinct-" + n)).orElseThrow();
+            assertThat(order.quantities()).as("order %d", n).containsExactly(INCREMENTS);
+            assertThat(order.version()).as("order %d", n).isEqualTo(INCREMENTS);
+        }
+    }
+
+    @Test
+    void unchangedResultDoesNotBumpVersion() {
+        String orderId = orderId("unchanged");
+        OrderSnapshot first = store().update(orderId, increment(PRODUCTS[0]));
+
+        OrderSnapshot second = store().update(orderId, UnaryOperator.identity());
+
+        assertThat(second.version()).isEqualTo(first.version()).isEqualTo(1L);
+    }
+
+    @Test
+    void failedMutationStoresNothing() {
+        String orderId = orderId("rejected");
+
+        assertThatThrownBy(() -> store().update(orderId, order -> {
+            throw new IllegalStateException("rejected");
+        })).hasMessage("rejected");
+
+        assertThat(store().get(orderId)).isEmpty();
+    }
+
+    private static UnaryOperator<OrderSnapshot> increment(long productId) {
+        return order -> {
+            int line = order.indexOf(productId);
+            return line < 0
+                    ? order.withLineAdded(productId, 1)
+                    : order.withQuantity(line, order.quantities()[line] + 1);
+        };
+    }
+
+    private static void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
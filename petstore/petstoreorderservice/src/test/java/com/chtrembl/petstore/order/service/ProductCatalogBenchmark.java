@@ -0,0 +1,145 @@
+package com.chtrembl.petstore.order.service;
+
+import com.chtrembl.petstore.order.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates and enriches one cart per invocation through {@link ProductCatalog}, through a
+ * {@code HashMap<Long, Product>} and through the list scan {@link OrderService} used before.
+ * <p>
+ * Not part of the unit test run. Start it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.chtrembl.petstore.order.service.ProductCatalogBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductCatalogBenchmark {
+
+    private static final int CARTS = 64;
+
+    @Param({"10000"})
+    public int products;
+
+    @Param({"50"})
+    public int lines;
+
+    private List<Product> list;
+    private ProductCatalog catalog;
+    private Map<Long, Product> hashMap;
+    private long[][] carts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        list = new ArrayList<>(products);
+        hashMap = new HashMap<>();
+        for (long id = 1; id <= products; id++) {
+            Product product = Product.builder().id(id).name("product-" + id)
+                    .photoURL("https://example.com/" + id + ".jpg").build();
+            list.add(product);
+            hashMap.putIfAbsent(id, product);
+        }
+        catalog = ProductCatalog.of(list);
+
+        SplittableRandom random = new SplittableRandom(42);
+        carts = new long[CARTS][];
+        for (int c = 0; c < CARTS; c++) {
+            carts[c] = random.longs(lines, 1, products + 1L).toArray();
+        }
+    }
+
+    private long[] nextCart() {
+        return carts[next++ & (CARTS - 1)];
+    }
+
+    @Benchmark
+    public int validateCatalog() {
+        int missing = 0;
+        for (long id : nextCart()) {
+            if (!catalog.contains(id)) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    @Benchmark
+    public int validateHashMap() {
+        int missing = 0;
+        for (long id : nextCart()) {
+            if (!hashMap.containsKey(id)) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    @Benchmark
+    public int validateScan() {
+        int missing = 0;
+        for (long id : nextCart()) {
+            if (list.stream().noneMatch(product -> product.getId() == id)) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    @Benchmark
+    public void enrichCatalog(Blackhole blackhole) {
+        for (long id : nextCart()) {
+            Product product = catalog.get(id);
+            blackhole.consume(product.getName());
+            blackhole.consume(product.getPhotoURL());
+        }
+    }
+
+    @Benchmark
+    public void enrichHashMap(Blackhole blackhole) {
+        for (long id : nextCart()) {
+            Product product = hashMap.get(id);
+            blackhole.consume(product.getName());
+            blackhole.consume(product.getPhotoURL());
+        }
+    }
+
+    @Benchmark
+    public void enrichScan(Blackhole blackhole) {
+        for (long id : nextCart()) {
+            Product product = list.stream().filter(p -> p.getId() == id).findFirst().orElseThrow();
+            blackhole.consume(product.getName());
+            blackhole.consume(product.getPhotoURL());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductCatalogBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
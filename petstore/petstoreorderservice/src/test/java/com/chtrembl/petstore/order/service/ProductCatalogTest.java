@@ -0,0 +1,66 @@
+package com.chtrembl.petstore.order.service;
+
+import com.chtrembl.petstore.order.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCatalogTest {
+
+    @Test
+    void looksUpProductsById() {
+        Product ball = Product.builder().id(1L).name("Ball").build();
+        Product rope = Product.builder().id(2L).name("Rope").build();
+        ProductCatalog catalog = ProductCatalog.of(List.of(ball, rope, Product.builder().name("No id").build()));
+
+        assertThat(catalog.get(2L)).isSameAs(rope);
+        assertThat(catalog.contains(1L)).isTrue();
+        assertThat(catalog.contains(3L)).isFalse();
+        assertThat(catalog.size()).isEqualTo(3);
+    }
+
+    @Test
+    void findsEveryProductOfALargeCatalog() {
+        List<Product> products = new ArrayList<>();
+        for (long id = 0; id < 10_000; id++) {
+            // spaced ids so that many of them share low bits
+            products.add(Product.builder().id(id << 20).name("product-" + id).build());
+        }
+        ProductCatalog catalog = ProductCatalog.of(products);
+
+        for (Product product : products) {
+            assertThat(catalog.get(product.getId())).isSameAs(product);
+        }
+        assertThat(catalog.contains(1L)).isFalse();
+        assertThat(catalog.contains(Long.MIN_VALUE)).isFalse();
+    }
+
+    @Test
+    void keepsFirstProductForDuplicateId() {
+        Product first = Product.builder().id(1L).name("Ball").build();
+        ProductCatalog catalog = ProductCatalog.of(List.of(first, Product.builder().id(1L).name("Other").build()));
+
+        assertThat(catalog.get(1L)).isSameAs(first);
+    }
+
+    @Test
+    void fingerprintChangesOnlyWithTheProductData() {
+        ProductCatalog catalog = ProductCatalog.of(List.of(Product.builder().id(1L).name("Ball").build()));
+
+        assertThat(ProductCatalog.of(List.of(Product.builder().id(1L).name("Ball").build())).fingerprint())
+                .isEqualTo(catalog.fingerprint());
+        assertThat(ProductCatalog.of(List.of(Product.builder().id(1L).name("Balls").build())).fingerprint())
+                .isNotEqualTo(catalog.fingerprint());
+        assertThat(ProductCatalog.of(List.of(Product.builder().id(1L).name("Bal").photoURL("l").build())).fingerprint())
+                .isNotEqualTo(ProductCatalog.of(List.of(Product.builder().id(1L).name("Ball").build())).fingerprint());
+    }
+
+    @Test
+    void emptyListGivesSharedEmptyCatalog() {
+        assertThat(ProductCatalog.of(List.of())).isSameAs(ProductCatalog.EMPTY);
+        assertThat(ProductCatalog.EMPTY.get(1L)).isNull();
+    }
+}
@@ -0,0 +1,158 @@
+package com.chtrembl.petstore.order.service;
+
+import com.chtrembl.petstore.order.model.Order;
+import com.chtrembl.petstore.order.model.OrderSnapshot;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the stress test against a real Redis, plus the Redis specific expiry and counting,
+ * skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisOrderStoreConcurrencyTest extends OrderStoreConcurrencyTest {
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisOrderStore store;
+
+    // the container is shared by all tests of the class, so each test works on its own keys
+    private final String run = UUID.randomUUID().toString();
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        // every thread contends on the same key, so allow far more retries than production does
+        store = new RedisOrderStore(connectionFactory, "test:order:", 10_000,
+                Duration.ofHours(1), Duration.ofMinutes(15));
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void readsExtendTheIdleTimeoutOfOpenOrders() {
+        RedisOrderStore ttlStore = store("ttl", Duration.ofMinutes(10), Duration.ofSeconds(30));
+        ttlStore.update("open", withProduct(1L));
+        ttlStore.update("listed", withProduct(1L));
+        expire("ttl", "open", 1000);
+        expire("ttl", "listed", 1000);
+
+        assertThat(ttlStore.get("open")).isPresent();
+        assertThat(ttlStore.getAll(List.of("listed", "missing"))).containsOnlyKeys("listed");
+
+        assertThat(ttlMillis("ttl", "open")).isGreaterThan(Duration.ofMinutes(9).toMillis());
+        assertThat(ttlMillis("ttl", "listed")).isGreaterThan(Duration.ofMinutes(9).toMillis());
+        assertThat(ttlMillis("ttl", "missing")).isNegative();
+    }
+
+    @Test
+    void readsDoNotExtendTheTtlOfCompletedOrders() {
+        RedisOrderStore ttlStore = store("completed", Duration.ofMinutes(10), Duration.ofSeconds(30));
+        ttlStore.update("done", order -> completed(order.withLineAdded(1L, 1)));
+
+        assertThat(ttlStore.get("done").orElseThrow().complete()).isTrue();
+        assertThat(ttlStore.getAll(List.of("done"))).containsOnlyKeys("done");
+
+        assertThat(ttlMillis("completed", "done")).isBetween(1L, Duration.ofSeconds(30).toMillis());
+    }
+
+    @Test
+    void sizeCountsTheOrdersUnderItsPrefix() {
+        RedisOrderStore counted = store("size", Duration.ofMinutes(10), Duration.ofSeconds(30));
+        assertThat(counted.size()).isZero();
+
+        for (int i = 0; i < 25; i++) {
+            counted.update("order-" + i, withProduct(i));
+        }
+        counted.remove("order-0");
+
+        assertThat(counted.size()).isEqualTo(24);
+    }
+
+    @Test
+    void retryStartsFromTheOrderTheConflictReturned() {
+        RedisOrderStore retrying = store("retry", Duration.ofMinutes(10), Duration.ofSeconds(30));
+        retrying.update("cart", withProduct(1L));
+        AtomicInteger calls = new AtomicInteger();
+
+        OrderSnapshot updated = retrying.update("cart", order -> {
+            if (calls.getAndIncrement() == 0) {
+                // another replica adds a line between our read and our write
+                retrying.update("cart", withProduct(2L));
+            }
+            return order.withLineAdded(3L, 1);
+        });
+
+        assertThat(calls).hasValue(2);
+        assertThat(updated.productIds()).containsExactly(1L, 2L, 3L);
+        assertThat(updated.version()).isEqualTo(3L);
+    }
+
+    @Override
+    OrderStore store() {
+        return store;
+    }
+
+    @Override
+    String orderId(String name) {
+        return run + "-" + name;
+    }
+
+    private RedisOrderStore store(String name, Duration idleTimeout, Duration completedTtl) {
+        return new RedisOrderStore(connectionFactory, prefix(name), 10, idleTimeout, completedTtl);
+    }
+
+    private String prefix(String name) {
+        return "test:" + run + ":" + name + ":";
+    }
+
+    private void expire(String name, String orderId, long millis) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.keyCommands().pExpire(key(name, orderId), millis);
+        }
+    }
+
+    private long ttlMillis(String name, String orderId) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            return connection.keyCommands().pTtl(key(name, orderId));
+        }
+    }
+
+    private byte[] key(String name, String orderId) {
+        return (prefix(name) + orderId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static UnaryOperator<OrderSnapshot> withProduct(long productId) {
+        return order -> order.withLineAdded(productId, 1);
+    }
+
+    private static OrderSnapshot completed(OrderSnapshot order) {
+        return new OrderSnapshot(order.id(), order.email(), Order.Status.DELIVERED, true,
+                order.productIds(), order.quantities(), order.version(), order.epoch());
+    }
+}
@@ -0,0 +1,70 @@
+package com.chtrembl.petstore.pet.config;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates W3C trace-context compatible ids as lowercase hex.
+ * <p>
+ * Ids come from {@link ThreadLocalRandom} longs and are hex-encoded into a per-thread
+ * {@code char[]} that is reused for every id, so the returned {@code String} is the only
+ * allocation and no {@code UUID}, {@code SecureRandom} or regex is involved. The same class
+ * is kept in every service so that ids look and behave the same everywhere.
+ */
+public final class TraceIds {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[32]);
+
+    private TraceIds() {
+    }
+
+    /**
+     * @return a 32 character trace id, never all zeros
+     */
+    public static String newTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long high;
+        long low;
+        do {
+            high = random.nextLong();
+            low = random.nextLong();
+        } while (high == 0 && low == 0);
+
+        char[] buffer = BUFFER.get();
+        writeHex(buffer, 0, high, 16);
+        writeHex(buffer, 16, low, 16);
+        return new String(buffer, 0, 32);
+    }
+
+    /**
+     * @return a 16 character span id, never all zeros
+     */
+    public static String newSpanId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0);
+
+        char[] buffer = BUFFER.get();
+        writeHex(buffer, 0, id, 16);
+        return new String(buffer, 0, 16);
+    }
+
+    /**
+     * @return an 8 character request id
+     */
+    public static String newRequestId() {
+        char[] buffer = BUFFER.get();
+        writeHex(buffer, 0, ThreadLocalRandom.current().nextLong(), 8);
+        return new String(buffer, 0, 8);
+    }
+
+    private static void writeHex(char[] buffer, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.chtrembl.petstore.pet.service;
+
+import com.chtrembl.petstore.pet.model.Pet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable lookup structure over a snapshot of the pet catalog.
+ * <p>
+ * Ids are kept in an open-addressing {@code long} table so lookups do not box, and the pets
+ * matching every combination of {@link Pet.Status} values are precomputed in catalog order.
+ * A new instance is built whenever the underlying catalog list changes; readers never see a
+ * partial index.
+ */
+final class PetCatalogIndex {
+
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+    private static final Pet.Status[] STATUSES = Pet.Status.values();
+
+    private final List<Pet> source;
+    private final List<Pet> all;
+    private final long[] keys;
+    private final Pet[] values;
+    private final int mask;
+    private final List<List<Pet>> byStatusMask;
+
+    private PetCatalogIndex(List<Pet> source) {
+        this.source = source;
+        this.all = List.copyOf(source);
+
+        int capacity = tableSizeFor(Math.max(2, all.size() * 2));
+        this.keys = new long[capacity];
+        this.values = new Pet[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY_KEY);
+
+        // one bucket per status subset (3 statuses -> 8 lists), so multi-status queries are
+        // answered with the union in catalog order instead of a filtered scan
+        List<List<Pet>> buckets = new ArrayList<>(1 << STATUSES.length);
+        for (int m = 0; m < 1 << STATUSES.length; m++) {
+            buckets.add(new ArrayList<>());
+        }
+
+        for (Pet pet : all) {
+            if (pet.getId() != null && pet.getId() != EMPTY_KEY) {
+                put(pet.getId(), pet);
+            }
+            if (pet.getStatus() != null) {
+                int bit = 1 << pet.getStatus().ordinal();
+                for (int m = bit; m < buckets.size(); m = (m + 1) | bit) {
+                    buckets.get(m).add(pet);
+                }
+            }
+        }
+
+        buckets.replaceAll(List::copyOf);
+        this.byStatusMask = List.copyOf(buckets);
+    }
+
+    static PetCatalogIndex of(List<Pet> pets) {
+        return new PetCatalogIndex(pets);
+    }
+
+    /**
+     * @return true if this index was built from exactly the given list instance
+     */
+    boolean isBuiltFrom(List<Pet> pets) {
+        return source == pets;
+    }
+
+    Pet findById(long id) {
+        if (id == EMPTY_KEY) {
+            return null;
+        }
+        int slot = mix(id) & mask;
+        while (keys[slot] != EMPTY_KEY) {
+            if (keys[slot] == id) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @return the pets whose status is in {@code statuses}, in catalog order
+     */
+    List<Pet> byStatus(Set<Pet.Status> statuses) {
+        int m = 0;
+        for (Pet.Status status : statuses) {
+            m |= 1 << status.ordinal();
+        }
+        return byStatusMask.get(m);
+    }
+
+    List<Pet> all() {
+        return all;
+    }
+
+    int size() {
+        return all.size();
+    }
+
+    private void put(long id, Pet pet) {
+        int slot = mix(id) & mask;
+        while (keys[slot] != EMPTY_KEY) {
+            if (keys[slot] == id) {
+                // keep the first occurrence, matching the previous findFirst() semantics
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        values[slot] = pet;
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = Integer.highestOneBit(n - 1) << 1;
+        return size < 0 ? 1 << 30 : size;
+    }
+}
@@ -6,8 +6,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Slf4j
@@ -16,20 +18,28 @@ public class PetService {
 
     private final DataPreload dataPreload;
 
+    private volatile PetCatalogIndex index;
+
     public List<Pet> findPetsByStatus(List<String> status) {
         log.info("Finding pets with status: {}", status);
 
-        return dataPreload.getPets().stream()
-                .filter(pet -> status.contains(pet.getStatus().getValue()))
-                .toList();
+        Set<Pet.Status> requested = EnumSet.noneOf(Pet.Status.class);
+        for (Pet.Status candidate : Pet.Status.values()) {
+            if (status.contains(candidate.getValue())) {
+                requested.add(candidate);
+            }
+        }
+
+        return catalog().byStatus(requested);
     }
 
     public Optional<Pet> findPetById(Long petId) {
         log.info("Finding pet with id: {}", petId);
 
-        return dataPreload.getPets().stream()
-                .filter(pet -> pet.getId().equals(petId))
-                .findFirst();
+        if (petId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(catalog().findById(petId));
     }
 
     public List<Pet> getAllPets() {
@@ -40,4 +50,15 @@ public class PetService {
     public int getPetCount() {
         return dataPreload.getPets().size();
     }
-}
\ No newline at end of file
+
+    private PetCatalogIndex catalog() {
+        List<Pet> pets = dataPreload.getPets();
+        PetCatalogIndex current = index;
+        if (current == null || !current.isBuiltFrom(pets)) {
+            current = PetCatalogIndex.of(pets);
+            index = current;
+            log.info("Rebuilt pet catalog index with {} pets", current.size());
+        }
+        return current;
+    }
+}
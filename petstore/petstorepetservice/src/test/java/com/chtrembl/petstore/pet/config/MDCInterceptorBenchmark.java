@@ -0,0 +1,84 @@
+package com.chtrembl.petstore.pet.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-request cost of {@link MDCInterceptor} and of the {@link TraceIds}
+ * generators against the {@code UUID} based ids the interceptors used before.
+ * <p>
+ * Not part of the unit test run. Start it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.chtrembl.petstore.pet.config.MDCInterceptorBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MDCInterceptorBenchmark {
+
+    private final MDCInterceptor interceptor = new MDCInterceptor();
+
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        // without Spring Boot logback defaults to DEBUG, measure the interceptor as production runs it
+        ((Logger) LoggerFactory.getLogger(MDCInterceptor.class)).setLevel(Level.INFO);
+
+        request = new MockHttpServletRequest("GET", "/petstorepetservice/v2/pet/findByStatus");
+        request.addHeader(Constants.X_SESSION_ID, "0123456789ABCDEF0123456789ABCDEF");
+        request.addHeader(Constants.USER_AGENT_HEADER, "Mozilla/5.0");
+        request.addHeader(Constants.X_FORWARDED_FOR, "203.0.113.7, 10.0.0.1");
+    }
+
+    @Benchmark
+    public void interceptRequest(Blackhole blackhole) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+        blackhole.consume(response);
+    }
+
+    @Benchmark
+    public void traceIds(Blackhole blackhole) {
+        blackhole.consume(TraceIds.newRequestId());
+        blackhole.consume(TraceIds.newTraceId());
+        blackhole.consume(TraceIds.newSpanId());
+    }
+
+    @Benchmark
+    public void uuidIds(Blackhole blackhole) {
+        blackhole.consume(UUID.randomUUID().toString().substring(0, 8));
+        blackhole.consume(UUID.randomUUID().toString().replaceAll("-", ""));
+        blackhole.consume(UUID.randomUUID().toString().substring(0, 16));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MDCInterceptorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,43 @@
+package com.chtrembl.petstore.pet.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceIdsTest {
+
+    private static final String HEX_32 = "[0-9a-f]{32}";
+    private static final String HEX_16 = "[0-9a-f]{16}";
+
+    @Test
+    void generatesW3cTraceAndSpanIds() {
+        for (int i = 0; i < 1000; i++) {
+            assertThat(TraceIds.newTraceId()).matches(HEX_32).isNotEqualTo("0".repeat(32));
+            assertThat(TraceIds.newSpanId()).matches(HEX_16).isNotEqualTo("0".repeat(16));
+            assertThat(TraceIds.newRequestId()).matches("[0-9a-f]{8}");
+        }
+    }
+
+    @Test
+    void reusingTheBufferDoesNotChangeEarlierIds() {
+        String traceId = TraceIds.newTraceId();
+        String copy = new String(traceId);
+
+        TraceIds.newSpanId();
+        TraceIds.newRequestId();
+
+        assertThat(traceId).isEqualTo(copy).hasSize(32);
+    }
+
+    @Test
+    void generatesDistinctIds() {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(TraceIds.newTraceId());
+        }
+        assertThat(ids).hasSize(10_000);
+    }
+}
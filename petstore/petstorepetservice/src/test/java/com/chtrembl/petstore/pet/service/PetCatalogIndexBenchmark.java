@@ -0,0 +1,110 @@
+package com.chtrembl.petstore.pet.service;
+
+import com.chtrembl.petstore.pet.model.Category;
+import com.chtrembl.petstore.pet.model.Pet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PetCatalogIndex} lookups with the stream scans {@link PetService} used before.
+ * <p>
+ * Not part of the unit test run. Start it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.chtrembl.petstore.pet.service.PetCatalogIndexBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PetCatalogIndexBenchmark {
+
+    private static final Set<Pet.Status> SINGLE = EnumSet.of(Pet.Status.AVAILABLE);
+    private static final Set<Pet.Status> MULTI = EnumSet.of(Pet.Status.AVAILABLE, Pet.Status.PENDING);
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private List<Pet> pets;
+    private PetCatalogIndex index;
+    private long[] probes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        Pet.Status[] statuses = Pet.Status.values();
+        pets = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            pets.add(Pet.builder()
+                    .id(id)
+                    .name("pet-" + id)
+                    .category(Category.builder().id(id % 8).name("category-" + id % 8).build())
+                    .status(statuses[random.nextInt(statuses.length)])
+                    .build());
+        }
+        index = PetCatalogIndex.of(pets);
+        probes = random.longs(1024, 1, size + 1L).toArray();
+    }
+
+    private long nextId() {
+        return probes[next++ & (probes.length - 1)];
+    }
+
+    @Benchmark
+    public Pet findByIdScan() {
+        long id = nextId();
+        return pets.stream().filter(pet -> pet.getId() == id).findFirst().orElse(null);
+    }
+
+    @Benchmark
+    public Pet findByIdIndex() {
+        return index.findById(nextId());
+    }
+
+    @Benchmark
+    public List<Pet> singleStatusScan() {
+        return pets.stream().filter(pet -> SINGLE.contains(pet.getStatus())).toList();
+    }
+
+    @Benchmark
+    public List<Pet> singleStatusIndex() {
+        return index.byStatus(SINGLE);
+    }
+
+    @Benchmark
+    public List<Pet> multiStatusScan() {
+        return pets.stream().filter(pet -> MULTI.contains(pet.getStatus())).toList();
+    }
+
+    @Benchmark
+    public List<Pet> multiStatusIndex() {
+        return index.byStatus(MULTI);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PetCatalogIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,66 @@
+package com.chtrembl.petstore.pet.service;
+
+import com.chtrembl.petstore.pet.model.Pet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PetCatalogIndexTest {
+
+    private final List<Pet> pets = List.of(
+            pet(1L, Pet.Status.AVAILABLE),
+            pet(2L, Pet.Status.SOLD),
+            pet(3L, Pet.Status.PENDING),
+            pet(4L, Pet.Status.AVAILABLE),
+            pet(5L, null),
+            pet(6L, Pet.Status.SOLD));
+
+    private final PetCatalogIndex index = PetCatalogIndex.of(pets);
+
+    @Test
+    void findsPetsById() {
+        assertThat(index.findById(4L)).isSameAs(pets.get(3));
+        assertThat(index.findById(42L)).isNull();
+        assertThat(index.findById(Long.MIN_VALUE)).isNull();
+    }
+
+    @Test
+    void keepsFirstPetForDuplicateId() {
+        Pet first = pet(7L, Pet.Status.AVAILABLE);
+        PetCatalogIndex duplicates = PetCatalogIndex.of(List.of(first, pet(7L, Pet.Status.SOLD)));
+
+        assertThat(duplicates.findById(7L)).isSameAs(first);
+    }
+
+    @Test
+    void matchesStreamScanForEveryStatusCombination() {
+        for (int m = 0; m < 1 << Pet.Status.values().length; m++) {
+            Set<Pet.Status> statuses = EnumSet.noneOf(Pet.Status.class);
+            for (Pet.Status status : Pet.Status.values()) {
+                if ((m & 1 << status.ordinal()) != 0) {
+                    statuses.add(status);
+                }
+            }
+
+            List<Pet> expected = pets.stream()
+                    .filter(pet -> statuses.contains(pet.getStatus()))
+                    .toList();
+            assertThat(index.byStatus(statuses)).as("statuses %s", statuses).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void tracksSourceListInstance() {
+        assertThat(index.isBuiltFrom(pets)).isTrue();
+        assertThat(index.isBuiltFrom(new ArrayList<>(pets))).isFalse();
+    }
+
+    private static Pet pet(long id, Pet.Status status) {
+        return Pet.builder().id(id).name("pet-" + id).status(status).build();
+    }
+}
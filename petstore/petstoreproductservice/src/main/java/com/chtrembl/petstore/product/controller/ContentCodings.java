@@ -0,0 +1,63 @@
+package com.chtrembl.petstore.product.controller;
+
+/**
+ * Minimal Accept-Encoding negotiation for the pre-rendered gzip bodies.
+ */
+final class ContentCodings {
+
+    static final String GZIP = "gzip";
+    static final String X_GZIP = "x-gzip";
+
+    private ContentCodings() {
+    }
+
+    /**
+     * Picks the gzip content coding the client accepts, honouring q-values.
+     *
+     * @return {@code "gzip"} or {@code "x-gzip"} (echoing the name the client used), or
+     * {@code null} when gzip is not acceptable and the identity body must be sent
+     */
+    static String negotiateGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        double gzip = -1;
+        double xGzip = -1;
+        double any = -1;
+        for (String element : acceptEncoding.split(",")) {
+            int semicolon = element.indexOf(';');
+            String coding = (semicolon < 0 ? element : element.substring(0, semicolon)).trim();
+            double q = semicolon < 0 ? 1.0 : qValue(element.substring(semicolon + 1));
+            if (GZIP.equalsIgnoreCase(coding)) {
+                gzip = Math.max(gzip, q);
+            } else if (X_GZIP.equalsIgnoreCase(coding)) {
+                xGzip = Math.max(xGzip, q);
+            } else if ("*".equals(coding)) {
+                any = Math.max(any, q);
+            }
+        }
+        if (gzip >= 0) {
+            return gzip > 0 ? GZIP : null;
+        }
+        if (xGzip >= 0) {
+            return xGzip > 0 ? X_GZIP : null;
+        }
+        return any > 0 ? GZIP : null;
+    }
+
+    private static double qValue(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.length() > 2 && (trimmed.charAt(0) == 'q' || trimmed.charAt(0) == 'Q')
+                    && trimmed.charAt(1) == '=') {
+                try {
+                    double q = Double.parseDouble(trimmed.substring(2).trim());
+                    return q >= 0 && q <= 1 ? q : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1.0;
+    }
+}
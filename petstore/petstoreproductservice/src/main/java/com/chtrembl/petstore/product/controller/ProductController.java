@@ -1,6 +1,7 @@
 package com.chtrembl.petstore.product.controller;
 
 import com.chtrembl.petstore.product.model.Product;
+import com.chtrembl.petstore.product.service.ProductResponseCache;
 import com.chtrembl.petstore.product.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,10 +12,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -29,6 +33,7 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductResponseCache productResponseCache;
 
     @Operation(
             summary = "Find products by status",
@@ -41,18 +46,38 @@ public class ProductController {
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
     @GetMapping("/product/findByStatus")
-    public ResponseEntity<List<Product>> findProductsByStatus(
+    public ResponseEntity<byte[]> findProductsByStatus(
             @Parameter(description = "Status values that need to be considered for filter",
                     required = true,
                     example = "available")
-            @RequestParam(value = "status", required = true) List<String> status) {
+            @RequestParam(value = "status", required = true) List<String> status,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
 
         log.info("Received GET request to /petstoreproductservice/v2/product/findByStatus with status: {}", status);
 
         try {
-            List<Product> products = productService.findProductsByStatus(status);
-            log.info("Successfully found {} products with status: {}", products.size(), status);
-            return ResponseEntity.ok(products);
+            ProductResponseCache.RenderedResponse rendered = productResponseCache.findByStatus(status);
+            String coding = ContentCodings.negotiateGzip(acceptEncoding);
+            String eTag = coding != null ? rendered.gzipETag() : rendered.eTag();
+
+            if (rendered.matches(ifNoneMatch)) {
+                log.info("Products with status {} not modified, ETag: {}", status, eTag);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(eTag)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .build();
+            }
+
+            log.info("Successfully found {} products with status: {}", rendered.count(), status);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(eTag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (coding != null) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, coding).body(rendered.gzip());
+            }
+            return response.body(rendered.json());
         } catch (Exception e) {
             log.error("Error occurred while finding products by status {}: {}", status, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -0,0 +1,136 @@
+package com.chtrembl.petstore.product.service;
+
+import com.chtrembl.petstore.product.model.DataPreload;
+import com.chtrembl.petstore.product.model.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the findByStatus responses pre-rendered to JSON, one entry per combination of
+ * {@link Product.Status} values, together with a gzip variant and a strong ETag.
+ * <p>
+ * The product catalog is loaded once from configuration, so the rendered bodies are
+ * rebuilt only when the {@link DataPreload} product list is replaced.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ProductResponseCache {
+
+    private final DataPreload dataPreload;
+    private final ObjectMapper objectMapper;
+
+    private volatile Snapshot snapshot;
+
+    public RenderedResponse findByStatus(List<String> status) {
+        int mask = 0;
+        for (Product.Status candidate : Product.Status.values()) {
+            if (status.contains(candidate.getValue())) {
+                mask |= 1 << candidate.ordinal();
+            }
+        }
+        return snapshot().responses[mask];
+    }
+
+    private Snapshot snapshot() {
+        List<Product> products = dataPreload.getProducts();
+        Snapshot current = snapshot;
+        if (current == null || current.source != products) {
+            current = render(products);
+            snapshot = current;
+            log.info("Pre-rendered {} findByStatus responses for {} products",
+                    current.responses.length, products.size());
+        }
+        return current;
+    }
+
+    private Snapshot render(List<Product> products) {
+        Product.Status[] statuses = Product.Status.values();
+        RenderedResponse[] responses = new RenderedResponse[1 << statuses.length];
+
+        for (int mask = 0; mask < responses.length; mask++) {
+            int selected = mask;
+            List<Product> matching = products.stream()
+                    .filter(product -> product.getStatus() != null
+                            && (selected & (1 << product.getStatus().ordinal())) != 0)
+                    .toList();
+            responses[mask] = RenderedResponse.of(serialize(matching), matching.size());
+        }
+
+        return new Snapshot(products, responses);
+    }
+
+    private byte[] serialize(List<Product> products) {
+        try {
+            return objectMapper.writeValueAsBytes(products);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to pre-render product response", e);
+        }
+    }
+
+    private record Snapshot(List<Product> source, RenderedResponse[] responses) {
+    }
+
+    /**
+     * A pre-rendered JSON body and its gzip-encoded counterpart. The arrays are shared
+     * between requests and must not be modified.
+     */
+    public record RenderedResponse(byte[] json, byte[] gzip, String eTag, String gzipETag, int count) {
+
+        static RenderedResponse of(byte[] json, int count) {
+            String digest = sha256(json);
+            return new RenderedResponse(json, gzip(json), "\"" + digest + "\"", "\"" + digest + "-gzip\"", count);
+        }
+
+        /**
+         * Weak comparison of an If-None-Match header against both representations, as
+         * required for conditional GETs.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if ("*".equals(tag) || eTag.equals(tag) || gzipETag.equals(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String sha256(byte[] body) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+                return HexFormat.of().formatHex(hash, 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        private static byte[] gzip(byte[] body) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    }
+}
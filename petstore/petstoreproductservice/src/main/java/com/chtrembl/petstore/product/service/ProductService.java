@@ -16,14 +16,6 @@ public class ProductService {
 
     private final DataPreload dataPreload;
 
-    public List<Product> findProductsByStatus(List<String> status) {
-        log.info("Finding products with status: {}", status);
-
-        return dataPreload.getProducts().stream()
-                .filter(product -> status.contains(product.getStatus().getValue()))
-                .toList();
-    }
-
     public Optional<Product> findProductById(Long productId) {
         log.info("Finding product with id: {}", productId);
 
@@ -0,0 +1,42 @@
+package com.chtrembl.petstore.product.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentCodingsTest {
+
+    @Test
+    void acceptsPlainAndWeightedGzip() {
+        assertThat(ContentCodings.negotiateGzip("gzip, deflate, br")).isEqualTo("gzip");
+        assertThat(ContentCodings.negotiateGzip("br;q=1.0, GZIP;q=0.5")).isEqualTo("gzip");
+    }
+
+    @Test
+    void refusesGzipWithZeroQuality() {
+        assertThat(ContentCodings.negotiateGzip("gzip;q=0")).isNull();
+        assertThat(ContentCodings.negotiateGzip("gzip ; q=0.000, identity")).isNull();
+        assertThat(ContentCodings.negotiateGzip("*, gzip;q=0")).isNull();
+    }
+
+    @Test
+    void echoesXGzipForClientsThatOnlyKnowIt() {
+        assertThat(ContentCodings.negotiateGzip("x-gzip")).isEqualTo("x-gzip");
+        assertThat(ContentCodings.negotiateGzip("x-gzip;q=0")).isNull();
+    }
+
+    @Test
+    void doesNotMatchOtherCodingsContainingGzip() {
+        assertThat(ContentCodings.negotiateGzip("notgzip")).isNull();
+        assertThat(ContentCodings.negotiateGzip("identity")).isNull();
+        assertThat(ContentCodings.negotiateGzip(null)).isNull();
+        assertThat(ContentCodings.negotiateGzip("")).isNull();
+    }
+
+    @Test
+    void acceptsWildcardUnlessGzipIsExcluded() {
+        assertThat(ContentCodings.negotiateGzip("*")).isEqualTo("gzip");
+        assertThat(ContentCodings.negotiateGzip("*;q=0")).isNull();
+        assertThat(ContentCodings.negotiateGzip("gzip;q=bogus")).isNull();
+    }
+}
@@ -0,0 +1,117 @@
+package com.chtrembl.petstore.product.controller;
+
+import com.chtrembl.petstore.product.model.DataPreload;
+import com.chtrembl.petstore.product.model.Product;
+import com.chtrembl.petstore.product.service.ProductResponseCache;
+import com.chtrembl.petstore.product.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ProductControllerTest {
+
+    private static final String FIND_BY_STATUS = "/petstoreproductservice/v2/product/findByStatus";
+
+    private MockMvc mockMvc;
+    private ProductResponseCache.RenderedResponse available;
+
+    @BeforeEach
+    void setUp() {
+        DataPreload dataPreload = new DataPreload();
+        dataPreload.setProducts(List.of(product(1L, "Ball", Product.Status.AVAILABLE),
+                product(2L, "Bone", Product.Status.SOLD)));
+        ProductResponseCache cache = new ProductResponseCache(dataPreload, new ObjectMapper());
+        available = cache.findByStatus(List.of("available"));
+        ProductController controller = new ProductController(new ProductService(dataPreload), cache);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void sendsTheIdentityBodyWithItsETag() throws Exception {
+        mockMvc.perform(get(FIND_BY_STATUS).param("status", "available"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, available.eTag()))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Ball"));
+    }
+
+    @Test
+    void sendsTheGzipBodyWhenTheClientAcceptsIt() throws Exception {
+        MvcResult result = mockMvc.perform(get(FIND_BY_STATUS).param("status", "available")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, available.gzipETag()))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn();
+
+        byte[] gzip = result.getResponse().getContentAsByteArray();
+        try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertThat(body.readAllBytes()).isEqualTo(available.json());
+        }
+    }
+
+    @Test
+    void answersAMatchingIfNoneMatchWithNotModified() throws Exception {
+        mockMvc.perform(get(FIND_BY_STATUS).param("status", "available")
+                        .header(HttpHeaders.IF_NONE_MATCH, available.eTag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, available.eTag()))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void matchesTheETagOfTheOtherCodingAndAnswersWithTheNegotiatedOne() throws Exception {
+        // a cache that stored the gzip variant revalidates without Accept-Encoding, and vice versa
+        mockMvc.perform(get(FIND_BY_STATUS).param("status", "available")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/" + available.gzipETag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, available.eTag()));
+
+        mockMvc.perform(get(FIND_BY_STATUS).param("status", "available")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, available.eTag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, available.gzipETag()));
+    }
+
+    @Test
+    void sendsTheBodyAgainForAStaleETag() throws Exception {
+        mockMvc.perform(get(FIND_BY_STATUS).param("status", "sold")
+                        .header(HttpHeaders.IF_NONE_MATCH, available.eTag()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Bone"));
+    }
+
+    @Test
+    void doesNotCompressWhenGzipIsRefused() throws Exception {
+        mockMvc.perform(get(FIND_BY_STATUS).param("status", "available")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, available.eTag()))
+                .andExpect(content().bytes(available.json()));
+    }
+
+    private static Product product(long id, String name, Product.Status status) {
+        return Product.builder().id(id).name(name).photoURL("https://example.com/" + id).status(status).build();
+    }
+}
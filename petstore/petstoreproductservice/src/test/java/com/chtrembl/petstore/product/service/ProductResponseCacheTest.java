@@ -0,0 +1,128 @@
+package com.chtrembl.petstore.product.service;
+
+import com.chtrembl.petstore.product.model.DataPreload;
+import com.chtrembl.petstore.product.model.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductResponseCacheTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final DataPreload dataPreload = new DataPreload();
+    private final ProductResponseCache cache = new ProductResponseCache(dataPreload, MAPPER);
+
+    @Test
+    void rendersTheProductsOfTheRequestedStatuses() throws Exception {
+        dataPreload.setProducts(List.of(
+                product(1L, Product.Status.AVAILABLE),
+                product(2L, Product.Status.SOLD),
+                product(3L, Product.Status.AVAILABLE),
+                product(4L, Product.Status.PENDING)));
+
+        ProductResponseCache.RenderedResponse available = cache.findByStatus(List.of("available"));
+        assertThat(ids(available.json())).containsExactly(1L, 3L);
+        assertThat(available.count()).isEqualTo(2);
+
+        ProductResponseCache.RenderedResponse soldOrPending = cache.findByStatus(List.of("sold", "pending"));
+        assertThat(ids(soldOrPending.json())).containsExactly(2L, 4L);
+        assertThat(soldOrPending.count()).isEqualTo(2);
+    }
+
+    @Test
+    void rendersAnEmptyArrayForUnknownStatuses() throws Exception {
+        dataPreload.setProducts(List.of(product(1L, Product.Status.AVAILABLE), product(2L, null)));
+
+        ProductResponseCache.RenderedResponse unknown = cache.findByStatus(List.of("unknown"));
+
+        assertThat(new String(unknown.json())).isEqualTo("[]");
+        assertThat(unknown.count()).isZero();
+        assertThat(ids(cache.findByStatus(List.of("available", "pending", "sold")).json())).containsExactly(1L);
+    }
+
+    @Test
+    void gzipVariantHoldsTheSameBody() throws Exception {
+        dataPreload.setProducts(List.of(product(1L, Product.Status.AVAILABLE)));
+
+        ProductResponseCache.RenderedResponse rendered = cache.findByStatus(List.of("available"));
+
+        assertThat(gunzip(rendered.gzip())).isEqualTo(rendered.json());
+        assertThat(rendered.gzipETag()).isEqualTo(rendered.eTag().replaceFirst("\"$", "-gzip\""));
+    }
+
+    @Test
+    void eTagFollowsTheRenderedBody() {
+        dataPreload.setProducts(List.of(product(1L, Product.Status.AVAILABLE), product(2L, Product.Status.SOLD)));
+        String available = cache.findByStatus(List.of("available")).eTag();
+
+        assertThat(cache.findByStatus(List.of("available")).eTag()).isEqualTo(available);
+        assertThat(cache.findByStatus(List.of("sold")).eTag()).isNotEqualTo(available);
+        assertThat(available).startsWith("\"").endsWith("\"");
+    }
+
+    @Test
+    void reusesTheRenderedBodiesUntilTheCatalogIsReplaced() throws Exception {
+        dataPreload.setProducts(List.of(product(1L, Product.Status.AVAILABLE)));
+        ProductResponseCache.RenderedResponse first = cache.findByStatus(List.of("available"));
+
+        assertThat(cache.findByStatus(List.of("available"))).isSameAs(first);
+
+        List<Product> replaced = new ArrayList<>(dataPreload.getProducts());
+        replaced.add(product(5L, Product.Status.AVAILABLE));
+        dataPreload.setProducts(replaced);
+        ProductResponseCache.RenderedResponse second = cache.findByStatus(List.of("available"));
+
+        assertThat(ids(second.json())).containsExactly(1L, 5L);
+        assertThat(second.eTag()).isNotEqualTo(first.eTag());
+    }
+
+    @Test
+    void matchesEitherRepresentationWeaklyAndInLists() {
+        dataPreload.setProducts(List.of(product(1L, Product.Status.AVAILABLE)));
+        ProductResponseCache.RenderedResponse rendered = cache.findByStatus(List.of("available"));
+
+        assertThat(rendered.matches(rendered.eTag())).isTrue();
+        assertThat(rendered.matches(rendered.gzipETag())).isTrue();
+        assertThat(rendered.matches("W/" + rendered.eTag())).isTrue();
+        assertThat(rendered.matches("\"other\", " + rendered.gzipETag())).isTrue();
+        assertThat(rendered.matches("*")).isTrue();
+
+        assertThat(rendered.matches("\"other\"")).isFalse();
+        assertThat(rendered.matches(rendered.eTag().replace("\"", ""))).isFalse();
+        assertThat(rendered.matches("")).isFalse();
+        assertThat(rendered.matches(null)).isFalse();
+    }
+
+    private static Product product(long id, Product.Status status) {
+        return Product.builder()
+                .id(id)
+                .name("product-" + id)
+                .photoURL("https://example.com/" + id)
+                .status(status)
+                .build();
+    }
+
+    private static List<Long> ids(byte[] json) throws IOException {
+        JsonNode products = MAPPER.readTree(json);
+        return StreamSupport.stream(products.spliterator(), false)
+                .map(product -> product.get("id").asLong())
+                .toList();
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return in.readAllBytes();
+        }
+    }
+}